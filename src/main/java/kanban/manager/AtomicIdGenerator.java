@@ -0,0 +1,62 @@
+package kanban.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Генератор id на общем счетчике: поток забирает блок id и выдает их без обращения к счетчику
+public class AtomicIdGenerator implements IdGenerator {
+    private static final int DEFAULT_BLOCK_SIZE = 64;
+    private final int blockSize;
+    private final AtomicLong nextBlockStart = new AtomicLong(1);
+    // Все id не больше этого значения уже заняты
+    private final AtomicLong maxReservedId = new AtomicLong(0);
+    private final ThreadLocal<Lease> leases = ThreadLocal.withInitial(Lease::new);
+
+    public AtomicIdGenerator() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public AtomicIdGenerator(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока id должен быть положительным");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Long nextId() {
+        Lease lease = leases.get();
+
+        while (true) {
+            // Пропускаем id блока, отмеченные занятыми после того, как блок был выдан
+            long reservedId = maxReservedId.get();
+            if (lease.next <= reservedId) {
+                lease.next = reservedId + 1;
+            }
+            if (lease.next < lease.end) {
+                break;
+            }
+
+            long start = nextBlockStart.getAndAdd(blockSize);
+            lease.next = start;
+            lease.end = start + blockSize;
+        }
+
+        return lease.next++;
+    }
+
+    @Override
+    public void reserve(Long id) {
+        if (id == null) {
+            return;
+        }
+
+        maxReservedId.accumulateAndGet(id, Math::max);
+        nextBlockStart.accumulateAndGet(id + 1, Math::max);
+    }
+
+    // Блок id [next, end), выданный потоку
+    private static class Lease {
+        private long next;
+        private long end;
+    }
+}
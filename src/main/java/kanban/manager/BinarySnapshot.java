@@ -0,0 +1,237 @@
+package kanban.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import kanban.model.TaskStatus;
+import kanban.model.TaskType;
+
+// Двоичный снимок задач в varint. Порядок констант TaskType и TaskStatus менять нельзя
+public class BinarySnapshot {
+    private static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    private static final byte VERSION = 1;
+    private static final int HAS_START_TIME = 1;
+    private static final int HAS_SUB_MINUTE = 2;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private BinarySnapshot() {
+    }
+
+    // Начинается ли содержимое с заголовка двоичного снимка
+    public static boolean isBinarySnapshot(ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] encode(Collection<? extends Task> tasks) {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        strings.add(null);
+
+        ByteWriter records = new ByteWriter(tasks.size() * 16);
+        for (Task task : tasks) {
+            TaskType taskType = task.getTaskType();
+            LocalDateTime startTime = taskType.equals(TaskType.EPIC) ? null : task.getStartTime();
+            long epochMinute = 0;
+            long subMinuteNanos = 0;
+            int flags = 0;
+            if (startTime != null) {
+                long epochSecond = startTime.toEpochSecond(ZoneOffset.UTC);
+                epochMinute = Math.floorDiv(epochSecond, 60);
+                subMinuteNanos = Math.floorMod(epochSecond, 60) * NANOS_PER_SECOND + startTime.getNano();
+                flags |= HAS_START_TIME;
+                if (subMinuteNanos != 0) {
+                    flags |= HAS_SUB_MINUTE;
+                }
+            }
+
+            records.writeByte(taskType.ordinal());
+            records.writeByte(flags);
+            records.writeVarLong(task.getId());
+            records.writeVarLong(stringIndex(task.getName(), stringIndexes, strings));
+            records.writeVarLong(stringIndex(task.getDescription(), stringIndexes, strings));
+            if (taskType.equals(TaskType.EPIC)) {
+                continue;
+            }
+
+            records.writeByte(task.getStatus().ordinal());
+            records.writeZigZag(task.getDuration().toMinutes());
+            if (startTime != null) {
+                records.writeZigZag(epochMinute);
+                if ((flags & HAS_SUB_MINUTE) != 0) {
+                    records.writeVarLong(subMinuteNanos);
+                }
+            }
+            if (taskType.equals(TaskType.SUBTASK)) {
+                records.writeVarLong(((SubTask) task).getEpicId());
+            }
+        }
+
+        ByteWriter snapshot = new ByteWriter(records.size() + strings.size() * 16 + 16);
+        for (byte b : MAGIC) {
+            snapshot.writeByte(b);
+        }
+        snapshot.writeByte(VERSION);
+        snapshot.writeVarLong(strings.size() - 1);
+        for (String string : strings.subList(1, strings.size())) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            snapshot.writeVarLong(bytes.length);
+            snapshot.writeBytes(bytes, bytes.length);
+        }
+        snapshot.writeVarLong(tasks.size());
+        snapshot.writeBytes(records.bytes, records.size());
+        return snapshot.toByteArray();
+    }
+
+    // Прочитать снимок с текущей позиции буфера (например, отображенного в память файла)
+    public static List<Task> decode(ByteBuffer buffer) {
+        if (!isBinarySnapshot(buffer)) {
+            throw new IllegalArgumentException("Файл не является двоичным снимком задач");
+        }
+        buffer.position(buffer.position() + MAGIC.length);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия двоичного снимка: " + version);
+        }
+
+        String[] strings = new String[(int) readVarLong(buffer) + 1];
+        byte[] stringBytes = new byte[64];
+        for (int i = 1; i < strings.length; i++) {
+            int length = (int) readVarLong(buffer);
+            if (stringBytes.length < length) {
+                stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+            }
+            buffer.get(stringBytes, 0, length);
+            strings[i] = new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        TaskType[] taskTypes = TaskType.values();
+        TaskStatus[] taskStatuses = TaskStatus.values();
+        int taskCount = (int) readVarLong(buffer);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            TaskType taskType = taskTypes[buffer.get()];
+            int flags = buffer.get();
+            Long id = readVarLong(buffer);
+            String name = strings[(int) readVarLong(buffer)];
+            String description = strings[(int) readVarLong(buffer)];
+            if (taskType.equals(TaskType.EPIC)) {
+                tasks.add(new Epic(id, name, description));
+                continue;
+            }
+
+            TaskStatus taskStatus = taskStatuses[buffer.get()];
+            Duration duration = Duration.ofMinutes(readZigZag(buffer));
+            LocalDateTime startTime = null;
+            if ((flags & HAS_START_TIME) != 0) {
+                long epochMinute = readZigZag(buffer);
+                long subMinuteNanos = (flags & HAS_SUB_MINUTE) != 0 ? readVarLong(buffer) : 0;
+                startTime = LocalDateTime.ofEpochSecond(epochMinute * 60 + subMinuteNanos / NANOS_PER_SECOND,
+                        (int) (subMinuteNanos % NANOS_PER_SECOND), ZoneOffset.UTC);
+            }
+
+            if (taskType.equals(TaskType.SUBTASK)) {
+                Long epicId = readVarLong(buffer);
+                tasks.add(new SubTask(id, name, description, taskStatus, epicId, startTime, duration));
+            } else {
+                tasks.add(new Task(id, name, description, taskStatus, startTime, duration));
+            }
+        }
+
+        return tasks;
+    }
+
+    private static int stringIndex(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (string == null) {
+            return 0;
+        }
+        return stringIndexes.computeIfAbsent(string, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Некорректное число в двоичном снимке");
+    }
+
+    private static long readZigZag(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Растущий буфер байтов без лишних копий при записи чисел
+    private static class ByteWriter {
+        private byte[] bytes;
+        private int size;
+
+        private ByteWriter(int capacity) {
+            this.bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] source, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package kanban.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import kanban.model.Task;
+
+// Потокобезопасная история просмотров: просмотры копятся в буферах потоков и переносятся в историю одним потоком
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int BUFFER_COUNT = 16;
+    private static final int DRAIN_THRESHOLD = 32;
+    private static final int MAX_BUFFER_SIZE = 1024;
+    // Доступ к истории только под drainLock
+    private final HistoryManager historyManager;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Buffer[] buffers = new Buffer[BUFFER_COUNT];
+
+    public ConcurrentHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            buffers[i] = new Buffer();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        add(null, task);
+    }
+
+    @Override
+    public void add(String clientId, Task task) {
+        if (task == null) {
+            System.out.println("Пустая задача. Добавление в историю не произведено");
+            return;
+        }
+
+        Buffer buffer = buffers[(int) (Thread.currentThread().threadId() & (BUFFER_COUNT - 1))];
+        buffer.views.offer(new View(clientId, task, System.nanoTime()));
+
+        // Переносить буферы будет тот поток, который первым захватит блокировку, остальные не ждут.
+        // Ждет только поток с переполненным буфером, чтобы буферы не росли быстрее, чем их переносят
+        int size = buffer.size.incrementAndGet();
+        if (size >= MAX_BUFFER_SIZE) {
+            drainLock.lock();
+        } else if (size < DRAIN_THRESHOLD || !drainLock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        drainLock.lock();
+        try {
+            drain();
+            historyManager.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<Long> ids) {
+        drainLock.lock();
+        try {
+            drain();
+            historyManager.removeAll(ids);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return historyManager.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        drainLock.lock();
+        try {
+            drain();
+            return historyManager.getHistory(clientId);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<String> getClientIds() {
+        drainLock.lock();
+        try {
+            drain();
+            return new LinkedHashSet<>(historyManager.getClientIds());
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Обход идет по копии истории: исходную историю могут изменить другие потоки
+    @Override
+    public Iterator<Task> descendingIterator(String clientId) {
+        return getHistory(clientId).reversed().iterator();
+    }
+
+    // Страница собирается под блокировкой, копировать всю историю не нужно
+    @Override
+    public HistoryPage getHistoryPage(String clientId, long cursor, int limit) {
+        drainLock.lock();
+        try {
+            drain();
+            return historyManager.getHistoryPage(clientId, cursor, limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Перенести накопленные просмотры в историю в порядке времени записи
+    private void drain() {
+        List<View> views = new ArrayList<>();
+        for (Buffer buffer : buffers) {
+            View view;
+            while ((view = buffer.views.poll()) != null) {
+                buffer.size.decrementAndGet();
+                views.add(view);
+            }
+        }
+
+        // Значения System.nanoTime сравниваются только через разность
+        views.sort((first, second) -> Long.signum(first.time - second.time));
+        for (View view : views) {
+            historyManager.add(view.clientId, view.task);
+        }
+    }
+
+    private static class Buffer {
+        private final Queue<View> views = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    private static class View {
+        private final String clientId;
+        private final Task task;
+        private final long time;
+
+        private View(String clientId, Task task, long time) {
+            this.clientId = clientId;
+            this.task = task;
+            this.time = time;
+        }
+    }
+}
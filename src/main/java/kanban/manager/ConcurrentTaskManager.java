@@ -0,0 +1,387 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+
+// Потокобезопасный менеджер задач для обработчиков HTTP-сервера, работающих в пуле потоков
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private static final int EPIC_LOCK_STRIPES = 64;
+    // Не реентерабельна: методы InMemoryTaskManager не должны вызывать переопределенные здесь методы
+    private final StampedLock lock = new StampedLock();
+    private final StampedLock scheduleLock = new StampedLock();
+    // Порядок захвата: lock -> полосы эпиков по возрастанию номера -> scheduleLock
+    private final ReentrantLock[] epicLocks = new ReentrantLock[EPIC_LOCK_STRIPES];
+
+    // История просмотров ведется отдельно для каждого клиента, как у Managers.getDefault()
+    public ConcurrentTaskManager() {
+        this(Managers.getPartitionedHistory());
+    }
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this(IntervalTree::new, historyManager);
+    }
+
+    // historyManager может быть не потокобезопасным: доступ к нему идет через ConcurrentHistoryManager
+    public ConcurrentTaskManager(Supplier<ScheduleIndex> scheduleIndexFactory, HistoryManager historyManager) {
+        super(scheduleIndexFactory, new ConcurrentHistoryManager(historyManager), new AtomicIdGenerator(), true);
+        for (int i = 0; i < EPIC_LOCK_STRIPES; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public Long createTask(Task task) {
+        return writeAndGet(() -> super.createTask(task));
+    }
+
+    @Override
+    public Long createEpic(Epic epic) {
+        return writeAndGet(() -> super.createEpic(epic));
+    }
+
+    @Override
+    public Long createSubTask(SubTask subTask) {
+        long stamp = lock.readLock();
+        try {
+            ReentrantLock epicLock = epicLock(subTask.getEpicId());
+            epicLock.lock();
+            try {
+                return scheduled(subTask.getStartTime() != null, () -> super.createSubTask(subTask));
+            } finally {
+                epicLock.unlock();
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Long> createAll(Collection<? extends Task> tasks) {
+        return writeAndGet(() -> super.createAll(tasks));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(super::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(super::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubTasks() {
+        write(super::deleteAllSubTasks);
+    }
+
+    @Override
+    public void deleteTaskById(Long id) {
+        write(() -> super.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(Long id) {
+        write(() -> super.deleteEpicById(id));
+    }
+
+    @Override
+    public void deleteSubTaskById(Long id) {
+        long stamp = lock.readLock();
+        try {
+            while (true) {
+                Long epicId = getLinkedEpicId(id);
+                ReentrantLock epicLock = epicLock(epicId);
+                epicLock.lock();
+                try {
+                    // Пока ждали блокировку, подзадачу могли перенести в другой эпик
+                    if (!Objects.equals(epicId, getLinkedEpicId(id))) {
+                        continue;
+                    }
+                    scheduled(isScheduled(id), () -> {
+                        super.deleteSubTaskById(id);
+                        return null;
+                    });
+                    return;
+                } finally {
+                    epicLock.unlock();
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> super.updateEpic(epic));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        long stamp = lock.readLock();
+        try {
+            while (true) {
+                Long oldEpicId = getLinkedEpicId(subTask.getId());
+                int firstStripe = stripe(oldEpicId);
+                int secondStripe = stripe(subTask.getEpicId());
+                // При переносе подзадачи между эпиками захватываем обе полосы в одном порядке
+                ReentrantLock firstLock = epicLocks[Math.min(firstStripe, secondStripe)];
+                ReentrantLock secondLock = epicLocks[Math.max(firstStripe, secondStripe)];
+                firstLock.lock();
+                secondLock.lock();
+                try {
+                    if (!Objects.equals(oldEpicId, getLinkedEpicId(subTask.getId()))) {
+                        continue;
+                    }
+                    boolean scheduled = subTask.getStartTime() != null || isScheduled(subTask.getId());
+                    scheduled(scheduled, () -> {
+                        super.updateSubTask(subTask);
+                        return null;
+                    });
+                    return;
+                } finally {
+                    secondLock.unlock();
+                    firstLock.unlock();
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> tasks) {
+        write(() -> super.updateAll(tasks));
+    }
+
+    // Задачи изменяются на месте, поэтому наружу отдаются только их копии, собранные под блокировками изменений.
+    // Чтение может пересечься с удалением задачи, и тогда удаление уже не застанет просмотр в истории.
+    // Поэтому после записи просмотра проверяем, что задача еще есть. Проверка нужна и при исключении:
+    // оптимистичная попытка могла записать просмотр, а повторное чтение под блокировкой - не найти задачу
+    @Override
+    public Task getTaskById(Long id, String clientId) {
+        try {
+            return optimisticRead(() -> copyOf(super.getTaskById(id, clientId)));
+        } finally {
+            forgetViewsIfDeleted(id);
+        }
+    }
+
+    @Override
+    public Epic getEpicById(Long id, String clientId) {
+        try {
+            return optimisticRead(() -> copyOf(super.getEpicById(id, clientId)));
+        } finally {
+            forgetViewsIfDeleted(id);
+        }
+    }
+
+    @Override
+    public SubTask getSubTaskById(Long id, String clientId) {
+        try {
+            return optimisticRead(() -> copyOf(super.getSubTaskById(id, clientId)));
+        } finally {
+            forgetViewsIfDeleted(id);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTaskList() {
+        return optimisticRead(() -> copies(super.getTaskList(), this::copyOf));
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicList() {
+        return optimisticRead(() -> copies(super.getEpicList(), this::copyOf));
+    }
+
+    @Override
+    public ArrayList<SubTask> getSubTaskList() {
+        return optimisticRead(() -> copies(super.getSubTaskList(), this::copyOf));
+    }
+
+    // Список подзадач эпика изменяется на месте под блокировкой полосы эпика, поэтому копируем его под ней же
+    @Override
+    public ArrayList<SubTask> getSubTaskListByEpicId(Long id) {
+        return read(() -> {
+            ReentrantLock epicLock = epicLock(id);
+            epicLock.lock();
+            try {
+                return copies(super.getSubTaskListByEpicId(id), SubTask::new);
+            } finally {
+                epicLock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return optimisticRead(() -> copies(super.getHistory(), this::copyOf));
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        return optimisticRead(() -> copies(super.getHistory(clientId), this::copyOf));
+    }
+
+    @Override
+    public HistoryPage getHistoryPage(String clientId, long cursor, int limit) {
+        return optimisticRead(() -> {
+            HistoryPage page = super.getHistoryPage(clientId, cursor, limit);
+            return new HistoryPage(copies(page.getTasks(), this::copyOf), page.getNextCursor());
+        });
+    }
+
+    // Задачи копируются уже после блокировки расписания: полосы эпиков захватываются раньше нее
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> copies(readSchedule(super::getPrioritizedTasks), this::copyOf));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> copies(readSchedule(() -> super.getPrioritizedTasks(from, to)), this::copyOf));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        return read(() -> readSchedule(() -> super.findFreeSlot(duration, notBefore, notAfter)));
+    }
+
+    private void write(Runnable action) {
+        long stamp = lock.writeLock();
+        try {
+            action.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private <T> T writeAndGet(Supplier<T> action) {
+        long stamp = lock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Выполнить изменение подзадачи под блокировкой расписания, если подзадача в нем участвует
+    private <T> T scheduled(boolean scheduled, Supplier<T> action) {
+        if (!scheduled) {
+            return action.get();
+        }
+
+        long stamp = scheduleLock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            scheduleLock.unlockWrite(stamp);
+        }
+    }
+
+    private <T> T readSchedule(Supplier<T> reader) {
+        long stamp = scheduleLock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            scheduleLock.unlockRead(stamp);
+        }
+    }
+
+    // Копия задачи любого типа. Задачи и поля эпиков изменяются под lock, подзадачи и производные от них
+    // поля эпиков - под полосой эпика, поэтому вызывается под lock или внутри optimisticRead
+    private Task copyOf(Task task) {
+        if (task instanceof Epic epic) {
+            return copyOf(epic);
+        } else if (task instanceof SubTask subTask) {
+            return copyOf(subTask);
+        }
+        return new Task(task);
+    }
+
+    private Epic copyOf(Epic epic) {
+        ReentrantLock epicLock = epicLock(epic.getId());
+        epicLock.lock();
+        try {
+            return new Epic(epic);
+        } finally {
+            epicLock.unlock();
+        }
+    }
+
+    private SubTask copyOf(SubTask subTask) {
+        while (true) {
+            Long epicId = subTask.getEpicId();
+            ReentrantLock epicLock = epicLock(epicId);
+            epicLock.lock();
+            try {
+                // Пока ждали блокировку, подзадачу могли перенести в другой эпик
+                if (Objects.equals(epicId, subTask.getEpicId())) {
+                    return new SubTask(subTask);
+                }
+            } finally {
+                epicLock.unlock();
+            }
+        }
+    }
+
+    private static <T extends Task> ArrayList<T> copies(Collection<T> tasks, Function<T, T> copy) {
+        ArrayList<T> result = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> result.add(copy.apply(task)));
+        return result;
+    }
+
+    private ReentrantLock epicLock(Long epicId) {
+        return epicLocks[stripe(epicId)];
+    }
+
+    private int stripe(Long epicId) {
+        return Math.floorMod(Objects.hashCode(epicId), EPIC_LOCK_STRIPES);
+    }
+
+    // Читаем без блокировки и проверяем, что за это время не было изменений. Чтение, пересекшееся
+    // с изменением, могло увидеть несогласованное состояние или упасть - тогда повторяем его под блокировкой
+    private <T> T optimisticRead(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException ignored) {
+                // Повторяем чтение под блокировкой
+            }
+        }
+
+        return read(reader);
+    }
+}
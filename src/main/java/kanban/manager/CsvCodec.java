@@ -0,0 +1,282 @@
+package kanban.manager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import kanban.model.TaskStatus;
+import kanban.model.TaskType;
+
+// Строки задач в CSV по RFC 4180. Экземпляр не потокобезопасен
+public class CsvCodec {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final int TASK_FIELDS = 8;
+    private final StringBuilder row = new StringBuilder();
+    private final StringBuilder unescapedField = new StringBuilder();
+    private CharBuffer input = CharBuffer.allocate(0);
+    private int position;
+    private int fieldCount;
+    private int[] fieldStarts = new int[TASK_FIELDS + 1];
+    private int[] fieldEnds = new int[TASK_FIELDS + 1];
+    private boolean[] quotedFields = new boolean[TASK_FIELDS + 1];
+    // Значения полей с удвоенными кавычками, для остальных полей - null
+    private String[] unescapedFields = new String[TASK_FIELDS + 1];
+
+    // Строка задачи без перевода строки. Возвращается внутренний буфер, он действителен до следующей записи
+    public CharSequence encode(Task task) {
+        row.setLength(0);
+        TaskType taskType = task.getTaskType();
+
+        row.append(task.getId()).append(SEPARATOR)
+                .append(taskType).append(SEPARATOR);
+        appendText(task.getName());
+        row.append(SEPARATOR).append(task.getStatus()).append(SEPARATOR);
+        appendText(task.getDescription());
+        row.append(SEPARATOR);
+        if (task.getStartTime() != null) {
+            row.append(task.getStartTime());
+        }
+        row.append(SEPARATOR).append(task.getDuration().toMinutes()).append(SEPARATOR);
+        if (TaskType.SUBTASK.equals(taskType)) {
+            row.append(((SubTask) task).getEpicId());
+        }
+
+        return row;
+    }
+
+    public void write(Task task, Writer writer) throws IOException {
+        writer.append(encode(task));
+    }
+
+    private void appendText(String value) {
+        if (value == null) {
+            return;
+        }
+        if (!value.isEmpty() && !needsQuotes(value)) {
+            row.append(value);
+            return;
+        }
+
+        row.append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE) {
+                row.append(QUOTE);
+            }
+            row.append(c);
+        }
+        row.append(QUOTE);
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Начать чтение с текущей позиции буфера. Позиция самого буфера не меняется
+    public void reset(CharBuffer chars) {
+        input = chars.slice();
+        position = 0;
+        fieldCount = 0;
+    }
+
+    // Прочитать следующую запись. Пустые строки между записями пропускаются. false - записей больше нет
+    public boolean nextRecord() {
+        int length = input.length();
+        while (position < length && (input.charAt(position) == '\n' || input.charAt(position) == '\r')) {
+            position++;
+        }
+        if (position >= length) {
+            return false;
+        }
+
+        fieldCount = 0;
+        while (true) {
+            int field = addField();
+            if (position < length && input.charAt(position) == QUOTE) {
+                readQuotedField(field);
+            } else {
+                int start = position;
+                while (position < length && !isFieldEnd(input.charAt(position))) {
+                    position++;
+                }
+                fieldStarts[field] = start;
+                fieldEnds[field] = position;
+                quotedFields[field] = false;
+                unescapedFields[field] = null;
+            }
+
+            if (position >= length) {
+                return true;
+            }
+            char c = input.charAt(position++);
+            if (c == '\r') {
+                if (position < length && input.charAt(position) == '\n') {
+                    position++;
+                }
+                return true;
+            } else if (c == '\n') {
+                return true;
+            } else if (c != SEPARATOR) {
+                throw new IllegalArgumentException("Лишние символы после кавычек в поле CSV");
+            }
+        }
+    }
+
+    private void readQuotedField(int field) {
+        int length = input.length();
+        int start = ++position;
+        boolean escaped = false;
+
+        while (true) {
+            if (position >= length) {
+                throw new IllegalArgumentException("Незакрытые кавычки в поле CSV");
+            }
+            char c = input.charAt(position);
+            if (c == QUOTE) {
+                if (position + 1 < length && input.charAt(position + 1) == QUOTE) {
+                    if (!escaped) {
+                        unescapedField.setLength(0);
+                        unescapedField.append(input, start, position);
+                        escaped = true;
+                    }
+                    unescapedField.append(QUOTE);
+                    position += 2;
+                    continue;
+                }
+                break;
+            }
+            if (escaped) {
+                unescapedField.append(c);
+            }
+            position++;
+        }
+
+        fieldStarts[field] = start;
+        fieldEnds[field] = position++;
+        quotedFields[field] = true;
+        unescapedFields[field] = escaped ? unescapedField.toString() : null;
+    }
+
+    private static boolean isFieldEnd(char c) {
+        return c == SEPARATOR || c == '\n' || c == '\r';
+    }
+
+    private int addField() {
+        if (fieldCount == fieldStarts.length) {
+            int capacity = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, capacity);
+            fieldEnds = Arrays.copyOf(fieldEnds, capacity);
+            quotedFields = Arrays.copyOf(quotedFields, capacity);
+            unescapedFields = Arrays.copyOf(unescapedFields, capacity);
+        }
+        return fieldCount++;
+    }
+
+    // Число символов, прочитанных от начала ввода, вместе с переводом строки после последней записи
+    public int position() {
+        return position;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    // Значение текстового поля: null для пустого поля без кавычек
+    public String text(int field) {
+        checkField(field);
+        if (unescapedFields[field] != null) {
+            return unescapedFields[field];
+        }
+
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (start == end && !quotedFields[field]) {
+            return null;
+        }
+        if (input.hasArray()) {
+            return new String(input.array(), input.arrayOffset() + start, end - start);
+        }
+        return input.subSequence(start, end).toString();
+    }
+
+    public boolean isEmpty(int field) {
+        checkField(field);
+        return fieldStarts[field] == fieldEnds[field];
+    }
+
+    public long longValue(int field) {
+        checkField(field);
+        return Long.parseLong(input, fieldStarts[field], fieldEnds[field], 10);
+    }
+
+    // Константа перечисления, имя которой совпадает с полем
+    public <E extends Enum<E>> E enumValue(int field, E[] values) {
+        checkField(field);
+        int start = fieldStarts[field];
+        int length = fieldEnds[field] - start;
+
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() == length && regionMatches(start, name)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное значение поля CSV: " + input.subSequence(start,
+                fieldEnds[field]));
+    }
+
+    private boolean regionMatches(int start, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (input.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private LocalDateTime dateTimeValue(int field) {
+        return isEmpty(field) ? null : LocalDateTime.parse(input.subSequence(fieldStarts[field], fieldEnds[field]));
+    }
+
+    // Задача из полей текущей записи, начиная с поля firstField
+    public Task readTask(int firstField) {
+        if (fieldCount - firstField != TASK_FIELDS) {
+            throw new IllegalArgumentException("Некорректное число полей в строке задачи: " + fieldCount);
+        }
+
+        Long id = longValue(firstField);
+        TaskType taskType = enumValue(firstField + 1, TaskType.values());
+        String name = text(firstField + 2);
+        TaskStatus taskStatus = enumValue(firstField + 3, TaskStatus.values());
+        String description = text(firstField + 4);
+        LocalDateTime startTime = dateTimeValue(firstField + 5);
+        Duration duration = Duration.ofMinutes(longValue(firstField + 6));
+
+        if (TaskType.SUBTASK.equals(taskType)) {
+            Long epicId = longValue(firstField + 7);
+            return new SubTask(id, name, description, taskStatus, epicId, startTime, duration);
+        } else if (TaskType.EPIC.equals(taskType)) {
+            return new Epic(id, name, description);
+        }
+        return new Task(id, name, description, taskStatus, startTime, duration);
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IllegalArgumentException("Нет поля CSV с номером " + field);
+        }
+    }
+}
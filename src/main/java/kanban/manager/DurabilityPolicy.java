@@ -0,0 +1,73 @@
+package kanban.manager;
+
+import java.time.Duration;
+
+// Когда FileBackedTaskManager записывает изменения на диск
+public class DurabilityPolicy {
+    private final Trigger trigger;
+    private final Duration interval;
+    // После записи данные сбрасываются на устройство через FileChannel.force
+    private final boolean force;
+
+    private DurabilityPolicy(Trigger trigger, Duration interval, boolean force) {
+        this.trigger = trigger;
+        this.interval = interval;
+        this.force = force;
+    }
+
+    // Каждое изменение записывается в вызывающем потоке до возврата из метода
+    public static DurabilityPolicy synchronous() {
+        return new DurabilityPolicy(Trigger.SYNCHRONOUS, Duration.ZERO, false);
+    }
+
+    // Каждое изменение записано до возврата из метода, но одновременные изменения разных потоков
+    // записываются фоновым потоком вместе
+    public static DurabilityPolicy everyWrite() {
+        return new DurabilityPolicy(Trigger.EVERY_WRITE, Duration.ZERO, false);
+    }
+
+    // Изменения накапливаются и записываются не чаще раза в interval. Потерять можно изменения за interval
+    public static DurabilityPolicy every(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Интервал записи должен быть положительным");
+        }
+        return new DurabilityPolicy(Trigger.INTERVAL, interval, false);
+    }
+
+    // Изменения записываются только по flush и при закрытии менеджера (в том числе при остановке JVM)
+    public static DurabilityPolicy onShutdown() {
+        return new DurabilityPolicy(Trigger.ON_SHUTDOWN, Duration.ZERO, false);
+    }
+
+    public DurabilityPolicy withForce() {
+        return new DurabilityPolicy(trigger, interval, true);
+    }
+
+    public boolean isSynchronous() {
+        return Trigger.SYNCHRONOUS.equals(trigger);
+    }
+
+    // Вызывающий поток ждет записи своего изменения
+    public boolean isWaitingForWrite() {
+        return Trigger.SYNCHRONOUS.equals(trigger) || Trigger.EVERY_WRITE.equals(trigger);
+    }
+
+    public boolean isWrittenOnlyOnFlush() {
+        return Trigger.ON_SHUTDOWN.equals(trigger);
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public boolean isForce() {
+        return force;
+    }
+
+    private enum Trigger {
+        SYNCHRONOUS,
+        EVERY_WRITE,
+        INTERVAL,
+        ON_SHUTDOWN
+    }
+}
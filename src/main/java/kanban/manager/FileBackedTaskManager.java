@@ -1,194 +1,870 @@
 package kanban.manager;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import kanban.exception.ManagerSaveException;
 import kanban.model.Epic;
 import kanban.model.SubTask;
 import kanban.model.Task;
-import kanban.model.TaskStatus;
 import kanban.model.TaskType;
 
-public class FileBackedTaskManager extends InMemoryTaskManager implements TaskManager {
+// Менеджер задач, который сохраняет изменения в файл по политике DurabilityPolicy
+public class FileBackedTaskManager extends InMemoryTaskManager implements TaskManager, AutoCloseable {
 
     private static final String CSV_SEPARATOR = ",";
     private static final String FILE_HEADER = String.format(
             "id%1$stype%1$sname%1$sstatus%1$sdescription%1$sstartTime%1$sduration%1$sepic",
             CSV_SEPARATOR);
+    // Журнал просмотров хранится рядом с файлом данных: одна строка "id" или "id,clientId" на просмотр
+    private static final String HISTORY_LOG_SUFFIX = ".history";
+    private static final int HISTORY_LOG_MIN_COMPACTION = 1_000;
+    // Журнал изменений хранится рядом с файлом данных. Первая строка "BASE,<crc32>" - контрольная сумма снимка,
+    // поверх которого записан журнал, дальше по записи на изменение: "PUT,<строка задачи>", "DELETE,<тип>,<id>"
+    // или "DELETE_ALL,<тип>". Изменения одной операции (например, пакета) предваряются записью "BATCH,<число>"
+    // и при загрузке применяются вместе
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final int JOURNAL_MIN_SNAPSHOT = 10_000;
     private final File file;
+    private final Path historyLog;
+    private final Path journal;
+    private final StorageMode storageMode;
+    private final DurabilityPolicy durabilityPolicy;
+    private final SnapshotFormat snapshotFormat;
+    // Используется только под блокировкой менеджера или при загрузке
+    private final CsvCodec csvCodec = new CsvCodec();
+    // Поток записи. Создается при первом изменении, если изменения записываются не в вызывающем потоке
+    private GroupCommitWriter writer;
+    private boolean closed;
+    // Журнал просмотров пишется под своей блокировкой, чтобы чтения не ждали записи изменений.
+    // Канал журнала остается открытым между просмотрами и закрывается на время сжатия
+    private final Object historyLogLock = new Object();
+    private FileChannel historyLogChannel;
+    // Записей в журнале просмотров и записей в нем сразу после последнего сжатия
+    private int historyLogRecords;
+    private int compactedHistoryLogRecords;
+    // Журнал изменений ведется поверх текущего файла данных
+    private boolean journalStarted;
+    private int journalRecords;
+    // Изменения, которые еще не записаны: записи журнала и признак того, что нужен новый снимок
+    private List<String> pendingRecords = new ArrayList<>();
+    private boolean snapshotDue;
+    // Страницы файла данных в режиме PAGED и задачи, измененные с последней записи страниц
+    private PageStore pageStore;
+    private Set<Long> dirtyIds = new HashSet<>();
+    // Во время загрузки изменения уже сохранены и не записываются повторно
+    private boolean restoring;
 
     public FileBackedTaskManager(File file) {
+        this(file, Managers.getDefaultHistory());
+    }
+
+    public FileBackedTaskManager(File file, HistoryManager historyManager) {
+        this(file, historyManager, StorageMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, HistoryManager historyManager, StorageMode storageMode) {
+        this(file, historyManager, storageMode, DurabilityPolicy.synchronous());
+    }
+
+    public FileBackedTaskManager(File file, HistoryManager historyManager, StorageMode storageMode,
+                                 DurabilityPolicy durabilityPolicy) {
+        this(file, historyManager, storageMode, durabilityPolicy, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(File file, HistoryManager historyManager, StorageMode storageMode,
+                                 DurabilityPolicy durabilityPolicy, SnapshotFormat snapshotFormat) {
+        super(historyManager);
         this.file = file;
+        this.historyLog = file != null ? Path.of(file.getPath() + HISTORY_LOG_SUFFIX) : null;
+        this.journal = file != null ? Path.of(file.getPath() + JOURNAL_SUFFIX) : null;
+        this.storageMode = storageMode;
+        this.durabilityPolicy = durabilityPolicy;
+        this.snapshotFormat = snapshotFormat;
+        this.pageStore = StorageMode.PAGED.equals(storageMode) ? new PageStore(PageStore.DEFAULT_PAGE_SIZE) : null;
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(file);
+        return loadFromFile(file, Managers.getDefaultHistory());
+    }
 
-        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
-            bufferedReader.readLine();
+    public static FileBackedTaskManager loadFromFile(File file, HistoryManager historyManager) {
+        return loadFromFile(file, historyManager, StorageMode.SNAPSHOT);
+    }
 
-            while (bufferedReader.ready()) {
-                Task task = fromString(bufferedReader.readLine());
+    // Загрузить снимок и проиграть поверх него журнал изменений, если он есть. Без журнала изменения,
+    // накопленные в журнале, переносятся в файл данных
+    public static FileBackedTaskManager loadFromFile(File file, HistoryManager historyManager,
+                                                     StorageMode storageMode) {
+        return loadFromFile(file, historyManager, storageMode, DurabilityPolicy.synchronous());
+    }
 
-                if (TaskType.SUBTASK.equals(task.getTaskType())) {
-                    fileBackedTaskManager.createSubTask((SubTask) task);
-                } else if (TaskType.EPIC.equals(task.getTaskType())) {
-                    fileBackedTaskManager.createEpic((Epic) task);
-                } else {
-                    fileBackedTaskManager.createTask(task);
-                }
+    // Файл данных и дальше записывается в том формате, в котором он был прочитан
+    public static FileBackedTaskManager loadFromFile(File file, HistoryManager historyManager,
+                                                     StorageMode storageMode, DurabilityPolicy durabilityPolicy) {
+        SnapshotFormat snapshotFormat;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header);
+            snapshotFormat = BinarySnapshot.isBinarySnapshot(header.flip()) ? SnapshotFormat.BINARY
+                    : SnapshotFormat.CSV;
+        } catch (IOException ioException) {
+            throw new RuntimeException(ioException.getMessage());
+        }
+
+        return loadFromFile(file, historyManager, storageMode, durabilityPolicy, snapshotFormat);
+    }
+
+    // Формат файла данных определяется по содержимому, snapshotFormat - формат, в котором он будет записываться
+    public static FileBackedTaskManager loadFromFile(File file, HistoryManager historyManager,
+                                                     StorageMode storageMode, DurabilityPolicy durabilityPolicy,
+                                                     SnapshotFormat snapshotFormat) {
+        FileBackedTaskManager fileBackedTaskManager = new FileBackedTaskManager(file, historyManager, storageMode,
+                durabilityPolicy, snapshotFormat);
+        fileBackedTaskManager.restoring = true;
+
+        // Страницы, запись которых по месту могла прерваться, дописываются до чтения файла
+        PageStore.recover(file.toPath());
+        PageStore pageStore = null;
+        try {
+            // Файл читается в память целиком, а не отображается: отображенный файл остается открытым
+            // до сборки мусора, и на Windows его нельзя заменить при следующей записи
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (StorageMode.PAGED.equals(storageMode) && PageStore.isPageFile(content)) {
+                pageStore = PageStore.read(content);
+                fileBackedTaskManager.pageStore = pageStore;
+                fileBackedTaskManager.restoreAll(readPages(pageStore));
+            } else {
+                fileBackedTaskManager.restoreAll(readSnapshot(content));
             }
+            fileBackedTaskManager.replayJournal();
         } catch (IOException ioException) {
             throw new RuntimeException(ioException.getMessage());
+        } finally {
+            fileBackedTaskManager.restoring = false;
+        }
+
+        // Снимок, записанный в другом режиме, переписывается в страницы
+        if (StorageMode.PAGED.equals(storageMode)
+                && (pageStore == null || Files.exists(fileBackedTaskManager.journal))) {
+            fileBackedTaskManager.rewritePages();
+        }
+
+        if (!StorageMode.JOURNAL.equals(storageMode) && Files.exists(fileBackedTaskManager.journal)) {
+            if (StorageMode.SNAPSHOT.equals(storageMode)) {
+                fileBackedTaskManager.writeSnapshot(fileBackedTaskManager.captureSnapshot());
+            }
+            try {
+                Files.delete(fileBackedTaskManager.journal);
+            } catch (IOException ioException) {
+                throw new ManagerSaveException(ioException.getMessage());
+            }
         }
 
+        fileBackedTaskManager.restoreHistory();
         return fileBackedTaskManager;
     }
 
-    private static String toString(Task task) {
-        StringBuilder stringBuilder = new StringBuilder();
-
-        TaskType taskType = task.getTaskType();
-        String startTime = task.getStartTime() != null ? task.getStartTime().toString() : "";
-        String epicId = TaskType.SUBTASK.equals(taskType) ?
-                String.valueOf(((SubTask) task).getEpicId()) : "";
-
-        stringBuilder
-                .append(task.getId()).append(CSV_SEPARATOR)
-                .append(taskType).append(CSV_SEPARATOR)
-                .append(task.getName()).append(CSV_SEPARATOR)
-                .append(task.getStatus()).append(CSV_SEPARATOR)
-                .append(task.getDescription()).append(CSV_SEPARATOR)
-                .append(startTime).append(CSV_SEPARATOR)
-                .append(task.getDuration().toMinutes()).append(CSV_SEPARATOR)
-                .append(epicId);
-
-        return stringBuilder.toString();
-    }
-
-    private static Task fromString(String value) {
-        String[] parameters = value.split(CSV_SEPARATOR, -1);
-        Long id = Long.valueOf(parameters[0]);
-        TaskType taskType = TaskType.valueOf(parameters[1]);
-        String name = parameters[2];
-        TaskStatus taskStatus = TaskStatus.valueOf(parameters[3]);
-        String description = parameters[4];
-        LocalDateTime startTime = (parameters[5] != null && !parameters[5].isEmpty()) ? LocalDateTime.parse(parameters[5]) : null;
-        Duration duration = Duration.ofMinutes(Long.parseLong(parameters[6]));
-
-
-        Task task;
-        if (TaskType.SUBTASK.equals(taskType)) {
-            Long epicId = Long.valueOf(parameters[7]);
-            task = new SubTask(id, name, description, taskStatus, epicId, startTime, duration);
-        } else if (TaskType.EPIC.equals(taskType)) {
-            task = new Epic(id, name, description);
-        } else {
-            task = new Task(id, name, description, taskStatus, startTime, duration);
+    // Двоичный снимок и страницы декодируются из содержимого файла, а строки CSV разбираются параллельно
+    private static List<Task> readSnapshot(ByteBuffer content) {
+        if (BinarySnapshot.isBinarySnapshot(content)) {
+            return BinarySnapshot.decode(content);
+        } else if (PageStore.isPageFile(content)) {
+            return readPages(PageStore.read(content));
         }
+        return ParallelCsvLoader.load(content);
+    }
 
-        return task;
+    // Каждая запись в странице - строка задачи в CSV
+    private static List<Task> readPages(PageStore pageStore) {
+        CsvCodec codec = new CsvCodec();
+        List<Task> tasks = new ArrayList<>(pageStore.ids().size());
+        for (Long id : pageStore.ids()) {
+            codec.reset(StandardCharsets.UTF_8.decode(pageStore.get(id)));
+            if (!codec.nextRecord()) {
+                throw new IllegalArgumentException("Пустая запись задачи " + id + " в файле страниц");
+            }
+            tasks.add(codec.readTask(0));
+        }
+        return tasks;
+    }
+
+    // Записать все задачи в новый файл страниц
+    private void rewritePages() {
+        PageStore.PageWrites pageWrites;
+        synchronized (this) {
+            pageStore = new PageStore(PageStore.DEFAULT_PAGE_SIZE);
+            getAllTasks().forEach(task -> dirtyIds.add(task.getId()));
+            pageWrites = updatePages();
+        }
+        pageStore.write(file.toPath(), pageWrites, durabilityPolicy.isForce());
     }
 
     @Override
     public Long createTask(Task task) {
-        Long taskId = super.createTask(task);
-        save();
-        return taskId;
+        return mutateAndGet(() -> super.createTask(task), () -> List.of(putChange(task)));
     }
 
     @Override
     public Long createEpic(Epic epic) {
-        Long epicId = super.createEpic(epic);
-        save();
-        return epicId;
+        return mutateAndGet(() -> super.createEpic(epic), () -> List.of(putChange(epic)));
     }
 
     @Override
     public Long createSubTask(SubTask subTask) {
-        Long subTaskId = super.createSubTask(subTask);
-        save();
-        return subTaskId;
+        return mutateAndGet(() -> super.createSubTask(subTask), () -> List.of(putChange(subTask)));
+    }
+
+    // Пакет сохраняется в файл один раз
+    @Override
+    public List<Long> createAll(Collection<? extends Task> tasks) {
+        return mutateAndGet(() -> super.createAll(tasks),
+                () -> tasks.stream().map(this::putChange).toList());
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        mutate(() -> super.deleteAllTasks(), () -> List.of(deleteAllChange(TaskType.TASK)));
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        mutate(() -> super.deleteAllEpics(), () -> List.of(deleteAllChange(TaskType.EPIC)));
     }
 
     @Override
     public void deleteAllSubTasks() {
-        super.deleteAllSubTasks();
-        save();
+        mutate(() -> super.deleteAllSubTasks(), () -> List.of(deleteAllChange(TaskType.SUBTASK)));
     }
 
     @Override
     public void deleteTaskById(Long id) {
-        super.deleteTaskById(id);
-        save();
+        mutate(() -> super.deleteTaskById(id), () -> List.of(deleteChange(TaskType.TASK, id)));
     }
 
     @Override
     public void deleteEpicById(Long id) {
-        super.deleteEpicById(id);
-        save();
+        mutate(() -> super.deleteEpicById(id), () -> List.of(deleteChange(TaskType.EPIC, id)));
     }
 
     @Override
     public void deleteSubTaskById(Long id) {
-        super.deleteSubTaskById(id);
-        save();
+        mutate(() -> super.deleteSubTaskById(id), () -> List.of(deleteChange(TaskType.SUBTASK, id)));
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        mutate(() -> super.updateTask(task), () -> List.of(putChange(task)));
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        mutate(() -> super.updateEpic(epic), () -> List.of(putChange(epic)));
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
-        super.updateSubTask(subTask);
-        save();
+        mutate(() -> super.updateSubTask(subTask), () -> List.of(putChange(subTask)));
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> tasks) {
+        mutate(() -> super.updateAll(tasks), () -> tasks.stream().map(this::putChange).toList());
+    }
+
+    // Записать все изменения, сделанные до вызова, и дождаться записи независимо от политики
+    public void flush() {
+        GroupCommitWriter currentWriter;
+        synchronized (this) {
+            currentWriter = writer;
+        }
+        if (currentWriter != null) {
+            currentWriter.flush();
+        }
+    }
+
+    // Записать накопленные изменения и остановить поток записи
+    @Override
+    public void close() {
+        GroupCommitWriter currentWriter;
+        synchronized (this) {
+            closed = true;
+            currentWriter = writer;
+        }
+        if (currentWriter != null) {
+            currentWriter.close();
+        }
+        synchronized (historyLogLock) {
+            closeHistoryLog();
+        }
+    }
+
+    // Ожидание записи выполняется уже без блокировки менеджера, чтобы изменения других потоков,
+    // пришедшие за это время, попали в ту же запись
+    private <T> T mutateAndGet(Supplier<T> mutation, Supplier<List<Change>> changes) {
+        T result;
+        long sequence;
+        GroupCommitWriter currentWriter;
+        synchronized (this) {
+            result = mutation.get();
+            sequence = persist(changes);
+            currentWriter = writer;
+        }
+
+        if (sequence != 0 && durabilityPolicy.isWaitingForWrite()) {
+            currentWriter.await(sequence);
+        }
+        return result;
+    }
+
+    private void mutate(Runnable mutation, Supplier<List<Change>> changes) {
+        mutateAndGet(() -> {
+            mutation.run();
+            return null;
+        }, changes);
+    }
+
+    // Отметить изменение: накопить записи журнала, отметить измененные задачи или отметить, что нужен новый
+    // снимок. Когда записей в журнале становится больше, чем задач, файл данных перезаписывается и журнал
+    // начинается заново, поэтому перезапись распределяется по изменениям. Возвращает номер изменения у потока
+    // записи или 0, если изменение уже записано
+    private long persist(Supplier<List<Change>> changes) {
+        if (restoring) {
+            return 0;
+        }
+
+        if (StorageMode.SNAPSHOT.equals(storageMode)) {
+            snapshotDue = true;
+        } else if (StorageMode.PAGED.equals(storageMode)) {
+            changes.get().forEach(this::markDirty);
+        } else {
+            List<Change> journalChanges = changes.get();
+            if (journalChanges.size() > 1) {
+                pendingRecords.add(JournalOperation.BATCH + CSV_SEPARATOR + journalChanges.size());
+            }
+            journalChanges.forEach(change -> pendingRecords.add(journalRecord(change)));
+            journalRecords += journalChanges.size();
+            if (!journalStarted || journalRecords > Math.max(JOURNAL_MIN_SNAPSHOT, getTaskCount())) {
+                snapshotDue = true;
+                journalStarted = true;
+                journalRecords = 0;
+            }
+        }
+
+        if (file == null || durabilityPolicy.isSynchronous()) {
+            commit();
+            return 0;
+        }
+        if (closed) {
+            throw new ManagerSaveException("Запись изменений остановлена");
+        }
+        if (writer == null) {
+            writer = new GroupCommitWriter("FileBackedTaskManager-" + file.getName(), durabilityPolicy,
+                    this::commit);
+        }
+        return writer.submit();
+    }
+
+    // Записать накопленные изменения. Снимок включает все изменения, поэтому записи журнала до него
+    // отбрасываются. При фоновой записи вызывается только потоком записи
+    private void commit() {
+        List<String> records;
+        byte[] snapshot = null;
+        PageStore.PageWrites pageWrites = null;
+        synchronized (this) {
+            records = pendingRecords;
+            pendingRecords = new ArrayList<>();
+            if (snapshotDue) {
+                snapshot = captureSnapshot();
+                snapshotDue = false;
+            }
+            if (StorageMode.PAGED.equals(storageMode)) {
+                pageWrites = updatePages();
+            }
+        }
+
+        try {
+            if (pageWrites != null) {
+                pageStore.write(file.toPath(), pageWrites, durabilityPolicy.isForce());
+            } else if (snapshot != null) {
+                writeSnapshot(snapshot);
+            } else if (!records.isEmpty()) {
+                writeJournal(String.join("\n", records) + "\n", StandardOpenOption.APPEND);
+            }
+        } catch (ManagerSaveException e) {
+            // Неизвестно, какая часть записана, поэтому следующая запись сохранит состояние целиком
+            // или все страницы, которые не удалось записать
+            synchronized (this) {
+                if (pageWrites != null) {
+                    pageStore.retry(pageWrites);
+                } else {
+                    snapshotDue = true;
+                }
+            }
+            throw e;
+        }
+    }
+
+    // Перенести в страницы задачи, измененные с прошлой записи, и забрать измененные страницы.
+    // Вызывается под блокировкой менеджера
+    private PageStore.PageWrites updatePages() {
+        for (Long id : dirtyIds) {
+            Task task = findTask(id);
+            if (task != null) {
+                pageStore.put(id, StandardCharsets.UTF_8.encode(CharBuffer.wrap(csvCodec.encode(task))));
+            } else {
+                pageStore.remove(id);
+            }
+        }
+        dirtyIds = new HashSet<>();
+
+        return pageStore.takeDirtyPages();
+    }
+
+    // Снимок записывается до того, как журнал начинается заново. Если процесс прервется между этими шагами,
+    // контрольная сумма в журнале не совпадет с новым снимком и журнал, уже учтенный в снимке, не проиграется
+    private void writeSnapshot(byte[] snapshot) {
+        long checksum = save(snapshot);
+        if (StorageMode.JOURNAL.equals(storageMode)) {
+            writeJournal(JournalOperation.BASE + CSV_SEPARATOR + checksum + "\n",
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    private void writeJournal(String content, StandardOpenOption mode) {
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                mode)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (durabilityPolicy.isForce()) {
+                channel.force(false);
+            }
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+    }
+
+    // Процесс может прерваться во время записи в журнал, тогда последняя запись не дописана. Она не применяется,
+    // а журнал обрезается, чтобы следующие записи не оказались после недописанной. Запись, которая дописана,
+    // но не читается, означает поврежденный журнал: записи после нее не отбрасываются молча
+    private void replayJournal() throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+
+        // Записи PUT могут занимать несколько строк, поэтому журнал читается целиком записями CSV
+        CharBuffer content = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(Files.readAllBytes(journal)));
+        csvCodec.reset(content);
+        try {
+            if (!nextJournalRecord(content) || csvCodec.fieldCount() != 2
+                    || !JournalOperation.BASE.equals(csvCodec.enumValue(0, JournalOperation.values()))
+                    || csvCodec.longValue(1) != checksum(file)) {
+                return;
+            }
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return;
+        }
+
+        int committedEnd = csvCodec.position();
+        while (true) {
+            List<Change> changes;
+            try {
+                changes = readJournalEntry(content);
+            } catch (UnfinishedRecordException unfinishedRecordException) {
+                truncateJournal(content, committedEnd);
+                break;
+            } catch (IllegalArgumentException | DateTimeParseException exception) {
+                throw new ManagerSaveException(String.format("Поврежденная запись журнала %s: %s", journal,
+                        exception.getMessage()));
+            }
+            if (changes.isEmpty()) {
+                break;
+            }
+
+            applyChanges(changes);
+            journalRecords += changes.size();
+            committedEnd = csvCodec.position();
+        }
+
+        journalStarted = true;
+    }
+
+    // Прочитать следующую запись журнала с переводом строки в конце. false - записей больше нет.
+    // Запись без перевода строки или с незакрытыми кавычками может быть только последней - она не дописана
+    private boolean nextJournalRecord(CharBuffer content) {
+        boolean hasRecord;
+        try {
+            hasRecord = csvCodec.nextRecord();
+        } catch (IllegalArgumentException illegalArgumentException) {
+            if (csvCodec.position() >= content.length()) {
+                throw new UnfinishedRecordException();
+            }
+            throw illegalArgumentException;
+        }
+
+        if (hasRecord && content.charAt(csvCodec.position() - 1) != '\n') {
+            throw new UnfinishedRecordException();
+        }
+        return hasRecord;
+    }
+
+    // Изменения следующей записи журнала или всех записей пакета. Пустой список - записей больше нет
+    private List<Change> readJournalEntry(CharBuffer content) {
+        if (!nextJournalRecord(content)) {
+            return List.of();
+        }
+        if (!JournalOperation.BATCH.equals(csvCodec.enumValue(0, JournalOperation.values()))) {
+            return List.of(readChange());
+        }
+
+        long size = csvCodec.longValue(1);
+        List<Change> changes = new ArrayList<>();
+        for (long i = 0; i < size; i++) {
+            if (!nextJournalRecord(content)) {
+                throw new UnfinishedRecordException();
+            }
+            Change change = readChange();
+            if (!JournalOperation.PUT.equals(change.operation)) {
+                throw new IllegalArgumentException("В пакете журнала допустимы только записи PUT");
+            }
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    // Изменение из текущей записи журнала, прочитанной csvCodec
+    private Change readChange() {
+        JournalOperation operation = csvCodec.enumValue(0, JournalOperation.values());
+        if (JournalOperation.PUT.equals(operation)) {
+            return putChange(csvCodec.readTask(1));
+        } else if (JournalOperation.DELETE.equals(operation)) {
+            return deleteChange(csvCodec.enumValue(1, TaskType.values()), csvCodec.longValue(2));
+        } else if (JournalOperation.DELETE_ALL.equals(operation)) {
+            return deleteAllChange(csvCodec.enumValue(1, TaskType.values()));
+        }
+        throw new IllegalArgumentException("Неожиданная запись журнала: " + operation);
+    }
+
+    // Задачи в журнале уже проверены при изменении, поэтому создаются и обновляются без проверок: промежуточное
+    // состояние пакета (например, задачи, поменявшиеся местами в расписании) проверку бы не прошло
+    private void applyChanges(List<Change> changes) {
+        Change change = changes.getFirst();
+        if (JournalOperation.PUT.equals(change.operation)) {
+            restoreTasks(changes.stream().map(put -> put.task).toList());
+        } else if (JournalOperation.DELETE.equals(change.operation)) {
+            switch (change.taskType) {
+                case TASK -> deleteTaskById(change.id);
+                case EPIC -> deleteEpicById(change.id);
+                case SUBTASK -> deleteSubTaskById(change.id);
+            }
+        } else {
+            switch (change.taskType) {
+                case TASK -> deleteAllTasks();
+                case EPIC -> deleteAllEpics();
+                case SUBTASK -> deleteAllSubTasks();
+            }
+        }
+    }
+
+    // Обрезать журнал после последней примененной записи. end - число символов в примененных записях
+    private void truncateJournal(CharBuffer content, int end) throws IOException {
+        int size = StandardCharsets.UTF_8.encode(content.slice(0, end)).remaining();
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private Change putChange(Task task) {
+        return new Change(JournalOperation.PUT, task.getTaskType(), task.getId(), task);
+    }
+
+    private static Change deleteChange(TaskType taskType, Long id) {
+        return new Change(JournalOperation.DELETE, taskType, id, null);
+    }
+
+    private static Change deleteAllChange(TaskType taskType) {
+        return new Change(JournalOperation.DELETE_ALL, taskType, null, null);
+    }
+
+    // Запись журнала строится сразу, под блокировкой менеджера: задачу могут изменить после вызова.
+    // Записывается задача, сохраненная менеджером: в переданной могут быть не заданы поля (например, статус эпика)
+    private String journalRecord(Change change) {
+        if (JournalOperation.PUT.equals(change.operation)) {
+            return JournalOperation.PUT + CSV_SEPARATOR + csvCodec.encode(findTask(change.id));
+        } else if (JournalOperation.DELETE.equals(change.operation)) {
+            return JournalOperation.DELETE + CSV_SEPARATOR + change.taskType + CSV_SEPARATOR + change.id;
+        }
+        return JournalOperation.DELETE_ALL + CSV_SEPARATOR + change.taskType;
+    }
+
+    private void markDirty(Change change) {
+        if (change.id != null) {
+            dirtyIds.add(change.id);
+        }
+    }
+
+    // Вместе с эпиком удаляются его подзадачи: в страницах отмечаются все удаленные задачи.
+    // Вызывается под блокировкой менеджера
+    @Override
+    protected void onTasksDeleted(Collection<Long> ids) {
+        if (StorageMode.PAGED.equals(storageMode) && !restoring) {
+            dirtyIds.addAll(ids);
+        }
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream inputStream = new CheckedInputStream(Files.newInputStream(file.toPath()), crc)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return crc.getValue();
+    }
+
+    // Просмотр дописывается в журнал одной строкой, файл данных не перезаписывается
+    @Override
+    public Task getTaskById(Long id, String clientId) {
+        Task task = super.getTaskById(id, clientId);
+        logView(task, clientId);
+        return task;
+    }
+
+    @Override
+    public Epic getEpicById(Long id, String clientId) {
+        Epic epic = super.getEpicById(id, clientId);
+        logView(epic, clientId);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTaskById(Long id, String clientId) {
+        SubTask subTask = super.getSubTaskById(id, clientId);
+        logView(subTask, clientId);
+        return subTask;
+    }
+
+    // Задача уже прочитана, поэтому ошибка записи журнала не прерывает чтение: просмотр только не попадет
+    // в историю после перезапуска
+    private void logView(Task task, String clientId) {
+        if (task == null || historyLog == null) {
+            return;
+        }
+
+        ByteBuffer data = StandardCharsets.UTF_8.encode(historyLogRecord(task.getId(), clientId) + "\n");
+        synchronized (historyLogLock) {
+            try {
+                if (historyLogChannel == null) {
+                    historyLogChannel = FileChannel.open(historyLog, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (data.hasRemaining()) {
+                    historyLogChannel.write(data);
+                }
+
+                historyLogRecords++;
+                if (historyLogRecords > Math.max(HISTORY_LOG_MIN_COMPACTION, 2 * compactedHistoryLogRecords)) {
+                    compactHistoryLog();
+                }
+            } catch (IOException ioException) {
+                System.out.println("Просмотр не записан в журнал: " + ioException.getMessage());
+                closeHistoryLog();
+            }
+        }
     }
 
-    private void save() {
-        List<Task> allTasks = new ArrayList<>(super.getTaskList());
+    // Вызывается под historyLogLock. Канал откроется заново при следующем просмотре
+    private void closeHistoryLog() {
+        if (historyLogChannel == null) {
+            return;
+        }
+
+        try {
+            historyLogChannel.close();
+        } catch (IOException ioException) {
+            System.out.println("Журнал просмотров не закрыт: " + ioException.getMessage());
+        }
+        historyLogChannel = null;
+    }
+
+    // Проиграть журнал просмотров в историю и сразу сжать его
+    private void restoreHistory() {
+        if (historyLog == null || !Files.exists(historyLog)) {
+            return;
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(historyLog);
+        } catch (IOException ioException) {
+            throw new RuntimeException(ioException.getMessage());
+        }
+
+        // Последняя строка без перевода строки не дописана: в ней может быть только часть id или имени клиента
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        for (String record : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (record.isEmpty()) {
+                continue;
+            }
+
+            String[] parameters = record.split(CSV_SEPARATOR, 2);
+            restoreView(parameters.length > 1 ? parameters[1] : null, Long.valueOf(parameters[0]));
+        }
+
+        synchronized (historyLogLock) {
+            try {
+                compactHistoryLog();
+            } catch (IOException ioException) {
+                throw new ManagerSaveException(ioException.getMessage());
+            }
+        }
+    }
+
+    // Журнал переписывается по текущим историям клиентов, поэтому его размер ограничен емкостью историй:
+    // просмотры, вытесненные из истории, и просмотры удаленных задач при загрузке не вернутся.
+    // Журнал переписывается во временный файл и атомарно подменяется. Вызывается под historyLogLock
+    private void compactHistoryLog() throws IOException {
+        closeHistoryLog();
+        List<String> records = new ArrayList<>();
+        for (String clientId : getHistoryClientIds()) {
+            for (Task task : getHistory(clientId)) {
+                records.add(historyLogRecord(task.getId(), clientId));
+            }
+        }
+
+        Path compactedLog = Path.of(historyLog + ".tmp");
+        Files.write(compactedLog, records, StandardCharsets.UTF_8);
+        Files.move(compactedLog, historyLog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        historyLogRecords = records.size();
+        compactedHistoryLogRecords = records.size();
+    }
+
+    private static String historyLogRecord(Long id, String clientId) {
+        return clientId == null ? id.toString() : id + CSV_SEPARATOR + clientId;
+    }
+
+    // Выгрузить все задачи в CSV независимо от формата файла данных
+    public void exportToCsv(File target) {
+        byte[] csv;
+        synchronized (this) {
+            csv = toCsv(getAllTasks());
+        }
+
+        try {
+            Files.write(target.toPath(), csv);
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+    }
+
+    // Содержимое файла данных со всеми задачами. Вызывается под блокировкой менеджера
+    private byte[] captureSnapshot() {
+        List<Task> allTasks = getAllTasks();
+        return SnapshotFormat.BINARY.equals(snapshotFormat) ? BinarySnapshot.encode(allTasks) : toCsv(allTasks);
+    }
+
+    private List<Task> getAllTasks() {
+        List<Task> allTasks = new ArrayList<>(getTaskCount());
+        allTasks.addAll(super.getTaskList());
         allTasks.addAll(super.getEpicList());
         allTasks.addAll(super.getSubTaskList());
+        return allTasks;
+    }
 
-        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(file))) {
+    private byte[] toCsv(List<Task> tasks) {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream(tasks.size() * 64 + FILE_HEADER.length());
+        try (BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(csv, StandardCharsets.UTF_8))) {
             bufferedWriter.write(FILE_HEADER);
 
-            for (Task task : allTasks) {
-                bufferedWriter.write("\n" + toString(task));
+            for (Task task : tasks) {
+                bufferedWriter.write('\n');
+                csvCodec.write(task, bufferedWriter);
+            }
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+        return csv.toByteArray();
+    }
+
+    // Файл данных записывается во временный файл и атомарно подменяется. Возвращает контрольную сумму снимка
+    private long save(byte[] snapshot) {
+        Path snapshotFile = Path.of(file.getPath() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
+            if (durabilityPolicy.isForce()) {
+                channel.force(true);
+            }
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
 
-            bufferedWriter.flush();
+        try {
+            Files.move(snapshotFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException ioException) {
             throw new ManagerSaveException(ioException.getMessage());
         }
+
+        CRC32 crc = new CRC32();
+        crc.update(snapshot);
+        return crc.getValue();
+    }
+
+    // Изменение, сделанное операцией менеджера: по нему строится запись журнала или отмечаются измененные
+    // задачи в страницах. У PUT есть задача, у DELETE - id, у DELETE_ALL - только тип
+    // Последняя запись журнала не дописана
+    private static class UnfinishedRecordException extends RuntimeException {
+    }
+
+    private static class Change {
+        private final JournalOperation operation;
+        private final TaskType taskType;
+        private final Long id;
+        private final Task task;
+
+        private Change(JournalOperation operation, TaskType taskType, Long id, Task task) {
+            this.operation = operation;
+            this.taskType = taskType;
+            this.id = id;
+            this.task = task;
+        }
+    }
+
+    private enum JournalOperation {
+        BASE,
+        BATCH,
+        PUT,
+        DELETE,
+        DELETE_ALL
     }
 }
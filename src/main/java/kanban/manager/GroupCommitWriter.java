@@ -0,0 +1,211 @@
+package kanban.manager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import kanban.exception.ManagerSaveException;
+
+// Фоновый поток записи: изменения, накопленные к началу записи, попадают в одну запись
+public class GroupCommitWriter implements AutoCloseable {
+    // Работающий поток удерживает менеджер от сборки мусора, поэтому без изменений он завершается
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final String name;
+    private final DurabilityPolicy policy;
+    private final Runnable commit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    // Поток записи и обработчик завершения JVM, который записывает оставшиеся изменения.
+    // Существуют, пока есть незаписанные изменения или не истек простой
+    private Thread thread;
+    private Thread shutdownHook;
+    // Номер последнего изменения, последнего записанного изменения и изменения, до которого просили записать
+    private long requestedSequence = 0;
+    private long committedSequence = 0;
+    private long flushSequence = 0;
+    private long lastCommitNanos = System.nanoTime();
+    private RuntimeException failure;
+    private boolean closed;
+
+    public GroupCommitWriter(String name, DurabilityPolicy policy, Runnable commit) {
+        this.name = name;
+        this.policy = policy;
+        this.commit = commit;
+    }
+
+    // Отметить изменение. Возвращает номер, записи которого можно дождаться через await
+    public long submit() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new ManagerSaveException("Запись изменений остановлена");
+            }
+            requestedSequence++;
+            failure = null;
+            start();
+            changed.signal();
+            return requestedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Дождаться записи изменения с номером sequence
+    public void await(long sequence) {
+        lock.lock();
+        try {
+            while (committedSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (thread == null || !thread.isAlive()) {
+                    throw new ManagerSaveException("Поток записи изменений остановлен");
+                }
+                committed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Записать все изменения, отмеченные до вызова, независимо от политики, и дождаться записи
+    public void flush() {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = requestedSequence;
+            flushSequence = Math.max(flushSequence, sequence);
+            failure = null;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        await(sequence);
+    }
+
+    @Override
+    public void close() {
+        Thread current;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            failure = null;
+            changed.signal();
+            current = thread;
+        } finally {
+            lock.unlock();
+        }
+
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Запустить поток записи, если он еще не запущен или завершился после простоя. Вызывается под блокировкой
+    private void start() {
+        if (thread != null) {
+            return;
+        }
+
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        shutdownHook = new Thread(this::close, name + "-shutdown");
+        thread.start();
+        try {
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // JVM уже останавливается
+        }
+    }
+
+    // Завершить поток записи. Вызывается под блокировкой
+    private void stop() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // JVM уже останавливается: close вызван из самого обработчика
+        }
+        thread = null;
+        shutdownHook = null;
+    }
+
+    private void run() {
+        long sequence;
+        while ((sequence = awaitCommitDue()) != 0) {
+            RuntimeException commitFailure = null;
+            try {
+                commit.run();
+            } catch (RuntimeException e) {
+                commitFailure = e;
+            }
+
+            lock.lock();
+            try {
+                lastCommitNanos = System.nanoTime();
+                failure = commitFailure;
+                if (commitFailure == null) {
+                    committedSequence = sequence;
+                }
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Дождаться, когда пора записывать, и вернуть номер изменения, до которого будет запись.
+    // 0 - поток завершается: запись остановлена или изменений не было дольше IDLE_TIMEOUT_NANOS
+    private long awaitCommitDue() {
+        lock.lock();
+        try {
+            while (!isCommitDue()) {
+                boolean idle = committedSequence == requestedSequence;
+                long idleNanos = IDLE_TIMEOUT_NANOS - (System.nanoTime() - lastCommitNanos);
+                if (closed && (idle || failure != null) || idle && idleNanos <= 0) {
+                    stop();
+                    return 0;
+                }
+
+                try {
+                    if (idle) {
+                        changed.awaitNanos(idleNanos);
+                    } else if (failure == null && !policy.isWrittenOnlyOnFlush() && !policy.isWaitingForWrite()) {
+                        long waitNanos = policy.getInterval().toNanos() - (System.nanoTime() - lastCommitNanos);
+                        changed.awaitNanos(waitNanos);
+                    } else {
+                        changed.awaitUninterruptibly();
+                    }
+                } catch (InterruptedException ignored) {
+                    // Поток записи не прерывают снаружи, ожидание повторяется
+                }
+            }
+            return requestedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой
+    private boolean isCommitDue() {
+        if (committedSequence == requestedSequence || failure != null) {
+            return false;
+        }
+        if (closed || flushSequence > committedSequence || policy.isWaitingForWrite()) {
+            return true;
+        }
+        return !policy.isWrittenOnlyOnFlush()
+                && System.nanoTime() - lastCommitNanos >= policy.getInterval().toNanos();
+    }
+}
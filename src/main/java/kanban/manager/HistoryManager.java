@@ -1,6 +1,10 @@
 package kanban.manager;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import kanban.model.Task;
 
@@ -13,4 +17,38 @@ public interface HistoryManager {
 
     // Получить историю просмотров задач
     List<Task> getHistory();
+
+    // Удалить из просмотра все задачи с id из ids (например, при удалении всех задач одного типа)
+    default void removeAll(Collection<Long> ids) {
+        ids.forEach(this::remove);
+    }
+
+    // Пометить задачу как просмотренную клиентом clientId. История без разделения по клиентам общая для всех
+    default void add(String clientId, Task task) {
+        add(task);
+    }
+
+    // Получить историю просмотров клиента clientId
+    default List<Task> getHistory(String clientId) {
+        return getHistory();
+    }
+
+    // Клиенты, у которых есть история. null - общая история без разделения по клиентам
+    default Set<String> getClientIds() {
+        return Collections.singleton(null);
+    }
+
+    // Обход истории от самого свежего просмотра к самому старому. История не должна изменяться во время обхода
+    default Iterator<Task> descendingIterator() {
+        return getHistory().reversed().iterator();
+    }
+
+    // Обход истории клиента clientId от самого свежего просмотра к самому старому
+    default Iterator<Task> descendingIterator(String clientId) {
+        return descendingIterator();
+    }
+
+    // Страница истории клиента clientId: не более limit просмотров старше просмотра с номером cursor,
+    // самые свежие первыми. Курсор первой страницы - HistoryPage.FIRST_CURSOR, следующей - из полученной страницы
+    HistoryPage getHistoryPage(String clientId, long cursor, int limit);
 }
@@ -0,0 +1,27 @@
+package kanban.manager;
+
+import java.util.List;
+
+import kanban.model.Task;
+
+// Страница истории просмотров: задачи от новых просмотров к старым и курсор следующей страницы
+public class HistoryPage {
+    // Курсор первой страницы: она начинается с самого свежего просмотра
+    public static final long FIRST_CURSOR = Long.MAX_VALUE;
+    private final List<Task> tasks;
+    // Номер последнего просмотра на странице или null, если более старых просмотров нет
+    private final Long nextCursor;
+
+    public HistoryPage(List<Task> tasks, Long nextCursor) {
+        this.tasks = tasks;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
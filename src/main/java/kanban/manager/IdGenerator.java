@@ -0,0 +1,9 @@
+package kanban.manager;
+
+public interface IdGenerator {
+    // Получить новый id
+    Long nextId();
+
+    // Отметить id как занятый (например, восстановленный из файла): новые id будут больше него
+    void reserve(Long id);
+}
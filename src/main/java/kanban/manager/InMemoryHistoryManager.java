@@ -1,95 +1,304 @@
 package kanban.manager;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
-import kanban.model.Node;
 import kanban.model.Task;
 
+// История просмотров фиксированной емкости на заранее выделенных массивах
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Long, Node> taskNodeMap = new HashMap<>();
+    public static final int DEFAULT_CAPACITY = 10_000;
+    private static final int NIL = -1;
 
-    private Node head;
-    private Node tail;
-    private int size = 0;
+    private final int capacity;
+    private final long[] ids;
+    private final Task[] tasks;
+    private final int[] prev;
+    private final int[] next;
+    // Номер просмотра в ячейке. Номера растут от старых просмотров к новым
+    private final long[] sequences;
 
-    // Добавляет узел с задачей в конец
-    private Node linkLast(Task task) {
-        final Node oldTail = tail;
-        final Node newNode = new Node(oldTail, task, null);
-        tail = newNode;
+    // Индекс id -> ячейка с линейным пробированием. В indexSlots хранится номер ячейки + 1, 0 - пустая позиция
+    private final long[] indexKeys;
+    private final int[] indexSlots;
+    private final int indexMask;
 
-        if (oldTail == null) {
-            head = newNode;
-        } else {
-            oldTail.setNext(newNode);
-        }
-        size++;
+    private int head = NIL;
+    private int tail = NIL;
+    // Свободные ячейки связаны в список через next
+    private int free;
+    private int size = 0;
+    // Число изменений истории, чтобы обход мог обнаружить изменение во время обхода
+    private int modCount = 0;
+    private long lastSequence = 0;
 
-        return newNode;
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
     }
 
-    // Удаляем узел
-    private void removeNode(Node node) {
-        final Node next = node.getNext();
-        final Node prev = node.getPrev();
-
-        if (prev == null) {
-            head = next;
-        } else {
-            prev.setNext(next);
-            node.setPrev(null);
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 28)) {
+            throw new IllegalArgumentException("Некорректная емкость истории: " + capacity);
         }
 
-        if (next == null) {
-            tail = prev;
-        } else {
-            next.setPrev(prev);
-            node.setNext(null);
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.tasks = new Task[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        this.sequences = new long[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            next[slot] = slot + 1 < capacity ? slot + 1 : NIL;
         }
+        this.free = 0;
 
-        node.setItem(null);
-        size--;
+        int indexSize = getIndexSize(capacity);
+        this.indexKeys = new long[indexSize];
+        this.indexSlots = new int[indexSize];
+        this.indexMask = indexSize - 1;
     }
 
-    // Собирает задачи из узлов в ArrayList
-    private ArrayList<Task> getTasks() {
-        ArrayList<Task> tasks = new ArrayList<>();
-        Node currentNode = head;
+    @Override
+    public void add(Task task) {
+        if (task == null || task.getId() == null) {
+            System.out.println("Пустая задача. Добавление в историю не произведено");
+            return;
+        }
+
+        long id = task.getId();
+        int slot = findSlot(id);
 
-        while (currentNode != null) {
-            tasks.add(currentNode.getItem());
-            currentNode = currentNode.getNext();
+        if (slot != NIL) {
+            // Повторный просмотр переносит задачу в конец
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                int oldest = head;
+                deleteFromIndex(ids[oldest]);
+                unlink(oldest);
+                release(oldest);
+            }
+            slot = allocate();
+            putToIndex(id, slot);
+            ids[slot] = id;
         }
 
-        return tasks;
+        tasks[slot] = task;
+        sequences[slot] = ++lastSequence;
+        linkLast(slot);
+        modCount++;
     }
 
     @Override
-    public void add(Task task) {
-        if (task == null) {
-            System.out.println("Пустая задача. Добавление в историю не произведено");
+    public void remove(Long id) {
+        if (id == null) {
             return;
         }
 
-        remove(task.getId());
-        Node newNode = linkLast(task);
-        taskNodeMap.put(task.getId(), newNode);
+        int slot = findSlot(id);
+        if (slot != NIL) {
+            deleteFromIndex(id);
+            unlink(slot);
+            release(slot);
+            modCount++;
+        }
     }
 
+    // Если удаляемых id больше, чем просмотров в истории, дешевле один раз пройти по истории
     @Override
-    public void remove(Long id) {
-        Node node = taskNodeMap.get(id);
+    public void removeAll(Collection<Long> removedIds) {
+        if (!(removedIds instanceof Set<Long> removedIdSet) || removedIdSet.size() <= size) {
+            removedIds.forEach(this::remove);
+            return;
+        }
 
-        if (node != null) {
-            removeNode(node);
+        int slot = head;
+        while (slot != NIL) {
+            int nextSlot = next[slot];
+            if (removedIdSet.contains(ids[slot])) {
+                deleteFromIndex(ids[slot]);
+                unlink(slot);
+                release(slot);
+                modCount++;
+            }
+            slot = nextSlot;
         }
     }
 
     @Override
     public List<Task> getHistory() {
-        return getTasks();
+        List<Task> history = new ArrayList<>(size);
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            history.add(tasks[slot]);
+        }
+        return history;
+    }
+
+    // Обход по ссылкам prev от последнего просмотра без копирования истории
+    @Override
+    public Iterator<Task> descendingIterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int slot = tail;
+
+            @Override
+            public boolean hasNext() {
+                return slot != NIL;
+            }
+
+            @Override
+            public Task next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (slot == NIL) {
+                    throw new NoSuchElementException();
+                }
+
+                Task task = tasks[slot];
+                slot = prev[slot];
+                return task;
+            }
+        };
+    }
+
+    // Курсор - номер просмотра, поэтому новые, повторные и удаленные просмотры не сдвигают следующие страницы.
+    // Пропускаются только просмотры новее курсора
+    @Override
+    public HistoryPage getHistoryPage(String clientId, long cursor, int limit) {
+        if (cursor <= 0 || limit < 0) {
+            throw new IllegalArgumentException(String.format("Некорректная страница истории: cursor=%d, limit=%d",
+                    cursor, limit));
+        }
+
+        int slot = tail;
+        while (slot != NIL && sequences[slot] >= cursor) {
+            slot = prev[slot];
+        }
+
+        List<Task> page = new ArrayList<>();
+        long lastReturned = 0;
+        while (page.size() < limit && slot != NIL) {
+            page.add(tasks[slot]);
+            lastReturned = sequences[slot];
+            slot = prev[slot];
+        }
+        return new HistoryPage(page, page.isEmpty() || slot == NIL ? null : lastReturned);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Примерный объем памяти в байтах, который занимает история емкостью capacity. Массивы выделяются сразу,
+    // поэтому объем не зависит от числа просмотров
+    public static long estimateFootprint(int capacity) {
+        long slotBytes = Long.BYTES + 2 * Integer.BYTES + Long.BYTES + Long.BYTES;
+        long indexEntryBytes = Long.BYTES + Integer.BYTES;
+        return capacity * slotBytes + getIndexSize(capacity) * indexEntryBytes;
+    }
+
+    // Заполненность индекса не больше половины
+    private static int getIndexSize(int capacity) {
+        return Integer.highestOneBit(capacity) << 2;
+    }
+
+    private int allocate() {
+        int slot = free;
+        free = next[slot];
+        size++;
+        return slot;
+    }
+
+    // Вернуть ячейку в список свободных, не удерживая ссылку на задачу
+    private void release(int slot) {
+        tasks[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    // Добавляет ячейку в конец списка
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    // Исключает ячейку из списка
+    private void unlink(int slot) {
+        int prevSlot = prev[slot];
+        int nextSlot = next[slot];
+
+        if (prevSlot == NIL) {
+            head = nextSlot;
+        } else {
+            next[prevSlot] = nextSlot;
+        }
+
+        if (nextSlot == NIL) {
+            tail = prevSlot;
+        } else {
+            prev[nextSlot] = prevSlot;
+        }
+    }
+
+    private int hash(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & indexMask;
+    }
+
+    private int findSlot(long id) {
+        for (int position = hash(id); indexSlots[position] != 0; position = (position + 1) & indexMask) {
+            if (indexKeys[position] == id) {
+                return indexSlots[position] - 1;
+            }
+        }
+        return NIL;
+    }
+
+    private void putToIndex(long id, int slot) {
+        int position = hash(id);
+        while (indexSlots[position] != 0) {
+            position = (position + 1) & indexMask;
+        }
+        indexKeys[position] = id;
+        indexSlots[position] = slot + 1;
+    }
+
+    // Удаление со сдвигом следующих записей назад, чтобы цепочки пробирования не рвались без "надгробий"
+    private void deleteFromIndex(long id) {
+        int position = hash(id);
+        while (indexKeys[position] != id || indexSlots[position] == 0) {
+            position = (position + 1) & indexMask;
+        }
+        indexSlots[position] = 0;
+
+        int current = (position + 1) & indexMask;
+        while (indexSlots[current] != 0) {
+            int home = hash(indexKeys[current]);
+            // Запись остается на месте, если ее исходная позиция лежит циклически в (position, current]
+            boolean stays = position <= current
+                    ? position < home && home <= current
+                    : position < home || home <= current;
+            if (!stays) {
+                indexKeys[position] = indexKeys[current];
+                indexSlots[position] = indexSlots[current];
+                indexSlots[current] = 0;
+                position = current;
+            }
+            current = (current + 1) & indexMask;
+        }
     }
 }
@@ -1,12 +1,25 @@
 package kanban.manager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import kanban.exception.CreateTaskException;
 import kanban.exception.UpdateTaskException;
@@ -17,20 +30,46 @@ import kanban.model.TaskStatus;
 import kanban.model.TaskType;
 
 public class InMemoryTaskManager implements TaskManager {
-    private final HashMap<Long, Task> taskHashMap = new HashMap<>();
-    private final HashMap<Long, Epic> epicHashMap = new HashMap<>();
-    private final HashMap<Long, SubTask> subTaskHashMap = new HashMap<>();
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
-    private final Set<Task> prioritizedTasks =
-            new TreeSet<>(Comparator.comparing(Task::getStartTime));
-    private Long nextId = 1L;
+    private final Map<Long, Task> taskHashMap;
+    private final Map<Long, Epic> epicHashMap;
+    private final Map<Long, SubTask> subTaskHashMap;
+    private final HistoryManager historyManager;
+    // Расписание разбито по типам задач: у каждого типа свой упорядоченный индекс и свой индекс пересечений,
+    // поэтому массовое удаление задач одного типа отбрасывает раздел целиком
+    private final Map<TaskType, SchedulePartition> schedulePartitions = new EnumMap<>(TaskType.class);
+    private final IdGenerator idGenerator;
+
+    public InMemoryTaskManager() {
+        this(IntervalTree::new);
+    }
+
+    // История просмотров определяет, как они хранятся (например, отдельно для каждого клиента)
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this(IntervalTree::new, historyManager, new AtomicIdGenerator(), false);
+    }
+
+    // Индекс расписания определяет способ поиска пересечений (например, календарь занятости на сетке слотов).
+    // Каждому разделу расписания нужен свой экземпляр индекса
+    public InMemoryTaskManager(Supplier<ScheduleIndex> scheduleIndexFactory) {
+        this(scheduleIndexFactory, Managers.getDefaultHistory(), new AtomicIdGenerator(), false);
+    }
+
+    // concurrent - хранилища задач допускают чтение из других потоков одновременно с изменением
+    protected InMemoryTaskManager(Supplier<ScheduleIndex> scheduleIndexFactory, HistoryManager historyManager,
+                                  IdGenerator idGenerator, boolean concurrent) {
+        this.taskHashMap = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.epicHashMap = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.subTaskHashMap = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.historyManager = historyManager;
+        this.idGenerator = idGenerator;
+        schedulePartitions.put(TaskType.TASK, new SchedulePartition(scheduleIndexFactory.get(), concurrent));
+        schedulePartitions.put(TaskType.SUBTASK, new SchedulePartition(scheduleIndexFactory.get(), concurrent));
+    }
 
     // Создать задачу
     @Override
     public Long createTask(Task task) {
-        if (task.getId() == null) {
-            task.setId(getNextId());
-        }
+        assignId(task);
 
         if (doesTaskIntersect(task)) {
             throw new CreateTaskException(task, "Найдены пересечения. Задача не создана");
@@ -44,18 +83,16 @@ public class InMemoryTaskManager implements TaskManager {
     // Создать эпик
     @Override
     public Long createEpic(Epic epic) {
-        if (epic.getId() == null) {
-            epic.setId(getNextId());
-        }
+        assignId(epic);
 
-        epicHashMap.put(epic.getId(), epic);
+        putEpic(epic);
         return epic.getId();
     }
 
     // Создать подзадачу
     @Override
     public Long createSubTask(SubTask subTask) {
-        if (!epicHashMap.containsKey(subTask.getEpicId())) {
+        if (!hasEpic(subTask.getEpicId())) {
             throw new CreateTaskException(subTask,
                     String.format("Невозможно связать подзадачу %d с эпиком. Эпик с id %d не найден. " +
                             "Подзадача не создана", subTask.getId(), subTask.getEpicId()));
@@ -65,120 +102,215 @@ public class InMemoryTaskManager implements TaskManager {
             throw new CreateTaskException(subTask, "Найдены пересечения. Подзадача не создана");
         }
 
-        if (subTask.getId() == null) {
-            subTask.setId(getNextId());
+        assignId(subTask);
+        putSubTask(subTask);
+        updateEpicStatus(subTask.getEpicId());
+
+        return subTask.getId();
+    }
+
+    @Override
+    public List<Long> createAll(Collection<? extends Task> tasks) {
+        Set<Long> batchIds = new HashSet<>();
+        Set<Long> batchEpicIds = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.getId() != null) {
+                if (!batchIds.add(task.getId())) {
+                    throw new CreateTaskException(task,
+                            String.format("Задача с id %d повторяется в пакете. Пакет не создан", task.getId()));
+                }
+                if (TaskType.EPIC.equals(task.getTaskType())) {
+                    batchEpicIds.add(task.getId());
+                }
+            }
         }
-        addPrioritizedTasks(subTask);
-        subTaskHashMap.put(subTask.getId(), subTask);
 
-        // Добавляем id в список подзадач эпика и проверяем статус
-        Epic epic = epicHashMap.get(subTask.getEpicId());
-        epic.getSubTaskList().add(subTask);
-        epic.setStatus(getEpicStatus(subTask.getEpicId()));
+        // Подзадача может ссылаться как на существующий эпик, так и на эпик из этого же пакета
+        for (Task task : tasks) {
+            if (TaskType.SUBTASK.equals(task.getTaskType())) {
+                Long epicId = ((SubTask) task).getEpicId();
+                if (!hasEpic(epicId) && !batchEpicIds.contains(epicId)) {
+                    throw new CreateTaskException(task,
+                            String.format("Невозможно связать подзадачу %d с эпиком. Эпик с id %d не найден. " +
+                                    "Пакет не создан", task.getId(), epicId));
+                }
+            }
+        }
 
-        return subTask.getId();
+        Task intersectingTask = findBatchIntersection(tasks, batchIds);
+        if (intersectingTask != null) {
+            throw new CreateTaskException(intersectingTask, "Найдены пересечения. Пакет не создан");
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            assignId(task);
+            ids.add(task.getId());
+        }
+
+        // Эпики создаем первыми, чтобы подзадачи пакета могли к ним привязаться
+        for (Task task : tasks) {
+            if (TaskType.EPIC.equals(task.getTaskType())) {
+                putEpic((Epic) task);
+            }
+        }
+
+        // Статус каждого затронутого эпика пересчитываем один раз
+        Set<Long> touchedEpicIds = new HashSet<>();
+        for (Task task : tasks) {
+            if (TaskType.SUBTASK.equals(task.getTaskType())) {
+                putSubTask((SubTask) task);
+                touchedEpicIds.add(((SubTask) task).getEpicId());
+            } else if (TaskType.TASK.equals(task.getTaskType())) {
+                addPrioritizedTasks(task);
+                taskHashMap.put(task.getId(), task);
+            }
+        }
+        touchedEpicIds.forEach(this::updateEpicStatus);
+
+        return ids;
     }
 
     // Удалить все задачи
     @Override
     public void deleteAllTasks() {
+        Set<Long> removedIds = new HashSet<>(taskHashMap.keySet());
+        schedulePartitions.get(TaskType.TASK).clear();
         taskHashMap.clear();
-        new ArrayList<>(prioritizedTasks).forEach(task -> {
-            if (TaskType.TASK.equals(task.getTaskType())) {
-                prioritizedTasks.remove(task);
-            }
-        });
+        // Задачи убираются из истории после хранилища, как и при удалении по id
+        historyManager.removeAll(removedIds);
+        onTasksDeleted(removedIds);
     }
 
     // Удалить все эпики (и все подзадачи)
     @Override
     public void deleteAllEpics() {
+        Set<Long> removedIds = new HashSet<>(epicHashMap.keySet());
+        removedIds.addAll(subTaskHashMap.keySet());
+        schedulePartitions.get(TaskType.SUBTASK).clear();
         epicHashMap.clear();
         subTaskHashMap.clear();
-        new ArrayList<>(prioritizedTasks).forEach(epic -> {
-            if (TaskType.SUBTASK.equals(epic.getTaskType())) {
-                prioritizedTasks.remove(epic);
-            }
-        });
+        historyManager.removeAll(removedIds);
+        onTasksDeleted(removedIds);
     }
 
     // Удалить все подзадачи
     @Override
     public void deleteAllSubTasks() {
+        Set<Long> removedIds = new HashSet<>(subTaskHashMap.keySet());
+        schedulePartitions.get(TaskType.SUBTASK).clear();
         subTaskHashMap.clear();
+        historyManager.removeAll(removedIds);
+        onTasksDeleted(removedIds);
 
-        new ArrayList<>(prioritizedTasks).forEach(subTask -> {
-            if (TaskType.SUBTASK.equals(subTask.getTaskType())) {
-                prioritizedTasks.remove(subTask);
-            }
-        });
-
-        getEpicList().forEach(epic -> {
+        epicHashMap.values().forEach(epic -> {
             epic.setStatus(TaskStatus.NEW);
-            epic.getSubTaskList().clear();
+            epic.clearSubTasks();
         });
     }
 
     // Получить задачу по идентификатору
     @Override
     public Task getTaskById(Long id) {
+        return getTaskById(id, null);
+    }
+
+    // Получить эпик по идентификатору
+    @Override
+    public Epic getEpicById(Long id) {
+        return getEpicById(id, null);
+    }
+
+    // Получить подзадачу по идентификатору
+    @Override
+    public SubTask getSubTaskById(Long id) {
+        return getSubTaskById(id, null);
+    }
+
+    @Override
+    public Task getTaskById(Long id, String clientId) {
         Task task = taskHashMap.get(id);
         if (task == null) {
             throw new NoSuchElementException(String.format("Задача с id %d не найдена", id));
         }
 
-        historyManager.add(task);
+        historyManager.add(clientId, task);
         return task;
     }
 
-    // Получить эпик по идентификатору
     @Override
-    public Epic getEpicById(Long id) {
+    public Epic getEpicById(Long id, String clientId) {
         Epic epic = epicHashMap.get(id);
         if (epic == null) {
             throw new NoSuchElementException(String.format("Эпик с id %d не найден", id));
         }
 
-        historyManager.add(epic);
+        historyManager.add(clientId, epic);
         return epic;
     }
 
-    // Получить подзадачу по идентификатору
     @Override
-    public SubTask getSubTaskById(Long id) {
+    public SubTask getSubTaskById(Long id, String clientId) {
         SubTask subTask = subTaskHashMap.get(id);
         if (subTask == null) {
             throw new NoSuchElementException(String.format("Подзадача с id %d не найдена", id));
         }
 
-        historyManager.add(subTask);
+        historyManager.add(clientId, subTask);
         return subTask;
     }
 
     // Удалить задачу по идентификатору
     @Override
     public void deleteTaskById(Long id) {
-        prioritizedTasks.remove(taskHashMap.get(id));
+        if (!taskHashMap.containsKey(id)) {
+            throw new NoSuchElementException(String.format("Задача с id %d не найдена. Удаление не выполнено", id));
+        }
+
+        removePrioritizedTask(TaskType.TASK, id);
         taskHashMap.remove(id);
+        historyManager.remove(id);
     }
 
     // Удалить эпик по идентификатору
     @Override
     public void deleteEpicById(Long id) {
-        // Удаляем связанные подзадачи
-        epicHashMap.get(id).getSubTaskList()
-                .forEach(subTask -> subTaskHashMap.remove(subTask.getId()));
+        Epic epic = epicHashMap.get(id);
+        if (epic == null) {
+            throw new NoSuchElementException(String.format("Эпик с id %d не найден. Удаление не выполнено", id));
+        }
+
+        // Удаляем связанные подзадачи из всех структур и из истории одним проходом
+        Set<Long> removedIds = new HashSet<>();
+        removedIds.add(id);
+        epic.getSubTaskList()
+                .forEach(subTask -> {
+                    subTaskHashMap.remove(subTask.getId());
+                    removePrioritizedTask(TaskType.SUBTASK, subTask.getId());
+                    removedIds.add(subTask.getId());
+                });
 
         epicHashMap.remove(id);
+        historyManager.removeAll(removedIds);
+        onTasksDeleted(removedIds);
+        // Удаленный эпик может оставаться у вызывающего кода - он не должен удерживать подзадачи
+        epic.clearSubTasks();
     }
 
     // Удалить подзадачу по идентификатору
     @Override
     public void deleteSubTaskById(Long id) {
-        Epic epic = epicHashMap.get(subTaskHashMap.get(id).getEpicId());
-        epic.getSubTaskList().remove(subTaskHashMap.get(id));
-        prioritizedTasks.remove(subTaskHashMap.get(id));
+        SubTask subTask = subTaskHashMap.get(id);
+        if (subTask == null) {
+            throw new NoSuchElementException(
+                    String.format("Подзадача с id %d не найдена. Удаление не выполнено", id));
+        }
+
+        IndexedTask indexedSubTask = removePrioritizedTask(TaskType.SUBTASK, id);
+        Epic epic = epicHashMap.get(indexedSubTask.epicId);
+        epic.removeSubTask(subTask, indexedSubTask.status, indexedSubTask.startTime, indexedSubTask.duration);
         subTaskHashMap.remove(id);
+        historyManager.remove(id);
         epic.setStatus(getEpicStatus(epic.getId()));
     }
 
@@ -194,13 +326,8 @@ public class InMemoryTaskManager implements TaskManager {
             throw new UpdateTaskException(task, "Найдены пересечения. Задача не обновлена");
         }
 
-        // Обновляем задачу
-        Task currentTask = taskHashMap.get(task.getId());
-        currentTask.setName(task.getName());
-        currentTask.setDescription(task.getDescription());
-        currentTask.setStatus(task.getStatus());
-        currentTask.setStartTime(task.getStartTime());
-        currentTask.setDuration(task.getDuration());
+        removePrioritizedTask(TaskType.TASK, task.getId());
+        applyTaskUpdate(task);
     }
 
     // Обновить эпик
@@ -211,10 +338,7 @@ public class InMemoryTaskManager implements TaskManager {
                     String.format("Эпик с id %d не найден. Обновление не применено", epic.getId()));
         }
 
-        // Обновляем эпик
-        Epic currentEpic = epicHashMap.get(epic.getId());
-        currentEpic.setName(epic.getName());
-        currentEpic.setDescription(epic.getDescription());
+        applyEpicUpdate(epic);
     }
 
     // Обновить позадачу
@@ -225,31 +349,68 @@ public class InMemoryTaskManager implements TaskManager {
                     String.format("Подзадача с id %d не найдена. Обновление не применено", subTask.getId()));
         }
 
+        if (!hasEpic(subTask.getEpicId())) {
+            throw new UpdateTaskException(subTask,
+                    String.format("Эпик с id %d не найден. Подзадача не обновлена", subTask.getEpicId()));
+        }
+
         if (doesTaskIntersect(subTask)) {
             throw new UpdateTaskException(subTask, "Найдены пересечения. Подзадача не обновлена");
         }
 
-        // Обновляем подзадачу
-        SubTask currentSubTask = subTaskHashMap.get(subTask.getId());
-        currentSubTask.setName(subTask.getName());
-        currentSubTask.setDescription(subTask.getDescription());
-        currentSubTask.setStatus(subTask.getStatus());
-        currentSubTask.setStartTime(subTask.getStartTime());
-        currentSubTask.setDuration(subTask.getDuration());
+        Set<Long> touchedEpicIds = new HashSet<>();
+        applySubTaskUpdate(subTask, removePrioritizedTask(TaskType.SUBTASK, subTask.getId()), touchedEpicIds);
 
-        Long oldEpicId = currentSubTask.getEpicId();
-        Long newEpicId = subTask.getEpicId();
-        if (!oldEpicId.equals(newEpicId)) {
-            // У подзадачи поменялся эпик
-            epicHashMap.get(oldEpicId).getSubTaskList().remove(currentSubTask);
-            epicHashMap.get(newEpicId).getSubTaskList().add(currentSubTask);
-            currentSubTask.setEpicId(newEpicId);
+        // Прооверяем статус эпика
+        touchedEpicIds.forEach(this::updateEpicStatus);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends Task> tasks) {
+        Set<Long> batchIds = new HashSet<>();
+        for (Task task : tasks) {
+            if (!getStorage(task.getTaskType()).containsKey(task.getId())) {
+                throw new NoSuchElementException(String.format("Задача с id %d (%s) не найдена. Пакет не обновлен",
+                        task.getId(), task.getTaskType()));
+            }
 
-            epicHashMap.get(oldEpicId).setStatus(getEpicStatus(oldEpicId));
+            if (TaskType.SUBTASK.equals(task.getTaskType())) {
+                Long epicId = ((SubTask) task).getEpicId();
+                if (!hasEpic(epicId)) {
+                    throw new UpdateTaskException(task,
+                            String.format("Эпик с id %d не найден. Пакет не обновлен", epicId));
+                }
+            }
+            if (!batchIds.add(task.getId())) {
+                throw new UpdateTaskException(task,
+                        String.format("Задача с id %d повторяется в пакете. Пакет не обновлен", task.getId()));
+            }
         }
 
-        // Прооверяем статус эпика
-        epicHashMap.get(newEpicId).setStatus(getEpicStatus(newEpicId));
+        // Задачи пакета могут поменяться местами в расписании, поэтому их прежние интервалы не учитываем
+        Task intersectingTask = findBatchIntersection(tasks, batchIds);
+        if (intersectingTask != null) {
+            throw new UpdateTaskException(intersectingTask, "Найдены пересечения. Пакет не обновлен");
+        }
+
+        // Сначала убираем из расписания весь пакет, чтобы новое место одной задачи не освобождалось
+        // при переиндексации другой
+        Map<Long, IndexedTask> oldTasks = new HashMap<>();
+        for (Task task : tasks) {
+            if (!TaskType.EPIC.equals(task.getTaskType())) {
+                oldTasks.put(task.getId(), removePrioritizedTask(task.getTaskType(), task.getId()));
+            }
+        }
+
+        Set<Long> touchedEpicIds = new HashSet<>();
+        for (Task task : tasks) {
+            switch (task.getTaskType()) {
+                case TASK -> applyTaskUpdate(task);
+                case EPIC -> applyEpicUpdate((Epic) task);
+                case SUBTASK -> applySubTaskUpdate((SubTask) task, oldTasks.get(task.getId()), touchedEpicIds);
+            }
+        }
+        touchedEpicIds.forEach(this::updateEpicStatus);
     }
 
     // Получить список задач
@@ -282,28 +443,184 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(String clientId) {
+        return historyManager.getHistory(clientId);
+    }
+
+    @Override
+    public HistoryPage getHistoryPage(String clientId, long cursor, int limit) {
+        return historyManager.getHistoryPage(clientId, cursor, limit);
+    }
+
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        List<Task> tasks = new ArrayList<>();
+        prioritizedView(UnaryOperator.identity()).forEach(tasks::add);
+        return tasks;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        List<Task> tasks = new ArrayList<>();
+        // Промежуток [from, to) с концом раньше начала пуст
+        if (from != null && to != null && to.isBefore(from)) {
+            return tasks;
+        }
+
+        if (from != null) {
+            // Задача, начавшаяся до from, может еще выполняться
+            tasks.addAll(getRunningTasks(from));
+        }
+
+        prioritizedView(view -> {
+            if (from != null) {
+                view = view.tailMap(IndexedTask.probe(from), true);
+            }
+            if (to != null) {
+                view = view.headMap(IndexedTask.probe(to), false);
+            }
+            return view;
+        }).forEach(tasks::add);
+        return tasks;
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        // Задача с отрицательной длительностью закончится раньше начала, такой промежуток не ищем
+        if (duration != null && duration.isNegative()) {
+            throw new IllegalArgumentException("Длительность не может быть отрицательной: " + duration);
+        }
+        Duration slotDuration = duration == null ? Duration.ZERO : duration;
+        LocalDateTime candidate = notBefore == null ? LocalDateTime.now() : notBefore;
+
+        // Пропускаем задачу, которая выполняется в момент notBefore
+        for (Task task : getRunningTasks(candidate)) {
+            if (task.getEndTime().isAfter(candidate)) {
+                candidate = task.getEndTime();
+            }
+        }
+
+        // Идем по расписанию от промежутка к промежутку, пока не найдется достаточно длинный
+        LocalDateTime searchFrom = candidate;
+        for (Task task : prioritizedView(view -> view.tailMap(IndexedTask.probe(searchFrom), true))) {
+            // Задача нулевой длительности время не занимает и пересечений не дает
+            if (task.getDuration().isZero()) {
+                continue;
+            }
+            LocalDateTime candidateEnd = candidate.plus(slotDuration);
+            if (notAfter != null && candidateEnd.isAfter(notAfter)) {
+                break;
+            }
+            if (!task.getStartTime().isBefore(candidateEnd)) {
+                return candidate;
+            }
+            if (task.getEndTime().isAfter(candidate)) {
+                candidate = task.getEndTime();
+            }
+        }
+
+        if (notAfter != null && candidate.plus(slotDuration).isAfter(notAfter)) {
+            throw new NoSuchElementException(
+                    String.format("Свободное время длительностью %d мин. до %s не найдено",
+                            slotDuration.toMinutes(), notAfter));
+        }
+        return candidate;
     }
 
     // Определяем статус эпика по его подзадачам
     private TaskStatus getEpicStatus(Long id) {
-        ArrayList<SubTask> epicSubTaskList = getSubTaskListByEpicId(id);
-        if (epicSubTaskList.isEmpty()
-                || epicSubTaskList.stream().allMatch(o -> TaskStatus.NEW.equals(o.getStatus()))) {
+        Epic epic = epicHashMap.get(id);
+        int subTaskCount = epic.getSubTaskList().size();
+        if (subTaskCount == epic.getSubTaskCount(TaskStatus.NEW)) {
             return TaskStatus.NEW;
-        } else if (epicSubTaskList.stream().allMatch(o -> TaskStatus.DONE.equals(o.getStatus()))) {
+        } else if (subTaskCount == epic.getSubTaskCount(TaskStatus.DONE)) {
             return TaskStatus.DONE;
         } else {
             return TaskStatus.IN_PROGRESS;
         }
     }
 
-    private void addPrioritizedTasks(Task task) {
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
+    // Обновить поля задачи, уже убранной из расписания. Время начала входит в ключ индекса,
+    // поэтому задача индексируется заново
+    private void applyTaskUpdate(Task task) {
+        Task currentTask = taskHashMap.get(task.getId());
+        currentTask.setName(task.getName());
+        currentTask.setDescription(task.getDescription());
+        currentTask.setStatus(task.getStatus());
+        currentTask.setStartTime(task.getStartTime());
+        currentTask.setDuration(task.getDuration());
+        addPrioritizedTasks(currentTask);
+    }
+
+    private void applyEpicUpdate(Epic epic) {
+        Epic currentEpic = epicHashMap.get(epic.getId());
+        currentEpic.setName(epic.getName());
+        currentEpic.setDescription(epic.getDescription());
+    }
+
+    // Обновить поля подзадачи, уже убранной из расписания. oldSubTask - состояние, с которым подзадача
+    // была учтена в эпике. Эпики, статус которых нужно пересчитать, добавляются в touchedEpicIds
+    private void applySubTaskUpdate(SubTask subTask, IndexedTask oldSubTask, Set<Long> touchedEpicIds) {
+        SubTask currentSubTask = subTaskHashMap.get(subTask.getId());
+        Long oldEpicId = oldSubTask.epicId;
+        Long newEpicId = subTask.getEpicId();
+
+        // Обновляем подзадачу
+        currentSubTask.setName(subTask.getName());
+        currentSubTask.setDescription(subTask.getDescription());
+        currentSubTask.setStatus(subTask.getStatus());
+        currentSubTask.setStartTime(subTask.getStartTime());
+        currentSubTask.setDuration(subTask.getDuration());
+        currentSubTask.setEpicId(newEpicId);
+        addPrioritizedTasks(currentSubTask);
+
+        if (!oldEpicId.equals(newEpicId)) {
+            // У подзадачи поменялся эпик
+            epicHashMap.get(oldEpicId).removeSubTask(currentSubTask,
+                    oldSubTask.status, oldSubTask.startTime, oldSubTask.duration);
+            epicHashMap.get(newEpicId).addSubTask(currentSubTask);
+            touchedEpicIds.add(oldEpicId);
+        } else {
+            epicHashMap.get(newEpicId).updateSubTask(currentSubTask,
+                    oldSubTask.status, oldSubTask.startTime, oldSubTask.duration);
         }
+        touchedEpicIds.add(newEpicId);
+    }
+
+    private void updateEpicStatus(Long epicId) {
+        epicHashMap.get(epicId).setStatus(getEpicStatus(epicId));
+    }
+
+    private void putEpic(Epic epic) {
+        // Подзадачи связываются с эпиком только через createSubTask, вместе с расчетным временем эпика
+        epic.clearSubTasks();
+        epicHashMap.put(epic.getId(), epic);
+    }
+
+    // Добавить подзадачу в расписание и в эпик. Статус эпика пересчитывается отдельно
+    private void putSubTask(SubTask subTask) {
+        addPrioritizedTasks(subTask);
+        subTaskHashMap.put(subTask.getId(), subTask);
+        epicHashMap.get(subTask.getEpicId()).addSubTask(subTask);
+    }
+
+    private Map<Long, ? extends Task> getStorage(TaskType taskType) {
+        return switch (taskType) {
+            case TASK -> taskHashMap;
+            case EPIC -> epicHashMap;
+            case SUBTASK -> subTaskHashMap;
+        };
+    }
+
+    private void addPrioritizedTasks(Task task) {
+        schedulePartitions.get(task.getTaskType()).add(task);
+    }
+
+    // Убрать задачу из расписания ее типа: задача другого типа с тем же id не затрагивается.
+    // Возвращает состояние, с которым задача была учтена
+    private IndexedTask removePrioritizedTask(TaskType taskType, Long id) {
+        return schedulePartitions.get(taskType).remove(id);
     }
 
     // Проверить наличие пересечений
@@ -312,19 +629,424 @@ public class InMemoryTaskManager implements TaskManager {
             return false;
         }
 
-        return prioritizedTasks.stream()
-                // Не проверяем пересечения с той же задачей, которую обновлеям
-                .filter(prioritizedTask -> !prioritizedTask.getId().equals(task.getId()))
-                .anyMatch(prioritizedTask ->
-                        (task.getStartTime().equals(prioritizedTask.getStartTime())
-                                && task.getEndTime().equals(prioritizedTask.getEndTime())) ||
-                                (task.getStartTime().isAfter(prioritizedTask.getStartTime())
-                                        && task.getStartTime().isBefore(prioritizedTask.getEndTime())) ||
-                                (task.getEndTime().isAfter(prioritizedTask.getStartTime())
-                                        && task.getEndTime().isBefore(prioritizedTask.getEndTime())));
+        // Не проверяем пересечения с той же задачей, которую обновлеям
+        for (SchedulePartition partition : schedulePartitions.values()) {
+            if (partition.scheduleIndex.hasOverlap(task.getStartTime(), task.getEndTime(), task.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Проверить пакет задач на пересечения с расписанием (кроме задач excludedIds) и между собой.
+    // Возвращает первую найденную пересекающуюся задачу или null
+    private Task findBatchIntersection(Collection<? extends Task> tasks, Set<Long> excludedIds) {
+        List<Task> timedTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            if (TaskType.EPIC.equals(task.getTaskType()) || task.getStartTime() == null) {
+                continue;
+            }
+
+            for (SchedulePartition partition : schedulePartitions.values()) {
+                ScheduleIndex scheduleIndex = partition.scheduleIndex;
+                if (scheduleIndex.hasOverlapExcluding(task.getStartTime(), task.getEndTime(), excludedIds)) {
+                    return task;
+                }
+            }
+            timedTasks.add(task);
+        }
+
+        // После сортировки по времени начала задача пересекается с предыдущими задачами пакета,
+        // только если начинается раньше самого позднего их окончания
+        timedTasks.sort(Comparator.comparing(Task::getStartTime));
+        LocalDateTime maxEndTime = null;
+        for (Task task : timedTasks) {
+            if (!task.getStartTime().isBefore(task.getEndTime())) {
+                continue;
+            }
+            if (maxEndTime != null && task.getStartTime().isBefore(maxEndTime)) {
+                return task;
+            }
+            if (maxEndTime == null || task.getEndTime().isAfter(maxEndTime)) {
+                maxEndTime = task.getEndTime();
+            }
+        }
+        return null;
+    }
+
+    // Задачи, которые начались до указанного момента и еще выполняются в него. Задачи не пересекаются,
+    // поэтому в каждом разделе достаточно найти ближайшую предыдущую задачу ненулевой длительности
+    private List<Task> getRunningTasks(LocalDateTime time) {
+        List<Task> tasks = new ArrayList<>();
+
+        for (SchedulePartition partition : schedulePartitions.values()) {
+            NavigableMap<IndexedTask, Task> earlierTasks =
+                    partition.prioritizedTasks.headMap(IndexedTask.probe(time), false).descendingMap();
+            for (Task task : earlierTasks.values()) {
+                if (!task.getDuration().isZero()) {
+                    if (task.getEndTime().isAfter(time)) {
+                        tasks.add(task);
+                    }
+                    break;
+                }
+            }
+        }
+        return tasks;
+    }
+
+    // Общий порядок задач всех разделов. Разделы сливаются лениво во время обхода, без копирования
+    private Iterable<Task> prioritizedView(UnaryOperator<NavigableMap<IndexedTask, Task>> view) {
+        return () -> {
+            List<NavigableMap<IndexedTask, Task>> views = new ArrayList<>();
+            schedulePartitions.values().forEach(partition -> views.add(view.apply(partition.prioritizedTasks)));
+            return new MergingIterator(views);
+        };
+    }
+
+    // Выдать задаче новый id. Собственный id задачи (например, восстановленный из файла) отмечается занятым,
+    // чтобы новые id его не повторили
+    private void assignId(Task task) {
+        if (task.getId() == null) {
+            task.setId(idGenerator.nextId());
+        } else {
+            idGenerator.reserve(task.getId());
+        }
+    }
+
+    // Восстановить просмотр задачи id клиентом clientId (например, из журнала просмотров), не изменяя
+    // ничего, кроме истории. Возвращает false, если задачи уже нет
+    protected boolean restoreView(String clientId, Long id) {
+        Task task = findTask(id);
+        if (task == null) {
+            return false;
+        }
+
+        historyManager.add(clientId, task);
+        return true;
+    }
+
+    // Загрузить в пустой менеджер задачи из доверенного источника (например, из файла, записанного менеджером).
+    // Пересечения не проверяются, переопределяемые методы не вызываются. Порядок задач не важен: подзадачи
+    // связываются с эпиками после загрузки всех эпиков, расписание строится одной сортировкой,
+    // а статус каждого эпика рассчитывается один раз
+    protected void restoreAll(Collection<? extends Task> tasks) {
+        List<Task> plainTasks = new ArrayList<>();
+        List<SubTask> subTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            idGenerator.reserve(task.getId());
+            if (TaskType.EPIC.equals(task.getTaskType())) {
+                putEpic((Epic) task);
+            } else if (TaskType.SUBTASK.equals(task.getTaskType())) {
+                subTasks.add((SubTask) task);
+            } else {
+                plainTasks.add(task);
+            }
+        }
+
+        for (Task task : plainTasks) {
+            taskHashMap.put(task.getId(), task);
+        }
+        schedulePartitions.get(TaskType.TASK).addAll(plainTasks);
+
+        for (SubTask subTask : subTasks) {
+            Epic epic = epicHashMap.get(subTask.getEpicId());
+            if (epic == null) {
+                throw new CreateTaskException(subTask,
+                        String.format("Невозможно связать подзадачу %d с эпиком. Эпик с id %d не найден",
+                                subTask.getId(), subTask.getEpicId()));
+            }
+            subTaskHashMap.put(subTask.getId(), subTask);
+            epic.addSubTask(subTask);
+        }
+        schedulePartitions.get(TaskType.SUBTASK).addAll(subTasks);
+
+        epicHashMap.keySet().forEach(this::updateEpicStatus);
+    }
+
+    // Создать или заменить задачи из доверенного источника (например, из журнала изменений, записанного
+    // менеджером). Пересечения не проверяются, переопределяемые методы не вызываются. Эпики применяются первыми,
+    // поэтому подзадача может ссылаться на эпик, который идет в пакете после нее
+    protected void restoreTasks(Collection<? extends Task> tasks) {
+        for (Task task : tasks) {
+            if (!TaskType.EPIC.equals(task.getTaskType())) {
+                continue;
+            }
+            if (epicHashMap.containsKey(task.getId())) {
+                applyEpicUpdate((Epic) task);
+            } else {
+                idGenerator.reserve(task.getId());
+                putEpic((Epic) task);
+            }
+        }
+
+        for (Task task : tasks) {
+            if (TaskType.SUBTASK.equals(task.getTaskType()) && !hasEpic(((SubTask) task).getEpicId())) {
+                throw new CreateTaskException(task,
+                        String.format("Невозможно связать подзадачу %d с эпиком. Эпик с id %d не найден",
+                                task.getId(), ((SubTask) task).getEpicId()));
+            }
+        }
+
+        // Как в updateAll: прежние интервалы пакета убираются до того, как задачи займут новые
+        Map<Long, IndexedTask> oldTasks = new HashMap<>();
+        for (Task task : tasks) {
+            if (!TaskType.EPIC.equals(task.getTaskType())) {
+                IndexedTask oldTask = removePrioritizedTask(task.getTaskType(), task.getId());
+                if (oldTask != null) {
+                    oldTasks.put(task.getId(), oldTask);
+                }
+            }
+        }
+
+        Set<Long> touchedEpicIds = new HashSet<>();
+        for (Task task : tasks) {
+            IndexedTask oldTask = oldTasks.get(task.getId());
+            if (TaskType.SUBTASK.equals(task.getTaskType())) {
+                if (oldTask != null) {
+                    applySubTaskUpdate((SubTask) task, oldTask, touchedEpicIds);
+                } else {
+                    idGenerator.reserve(task.getId());
+                    putSubTask((SubTask) task);
+                    touchedEpicIds.add(((SubTask) task).getEpicId());
+                }
+            } else if (TaskType.TASK.equals(task.getTaskType())) {
+                if (oldTask != null) {
+                    applyTaskUpdate(task);
+                } else {
+                    idGenerator.reserve(task.getId());
+                    addPrioritizedTasks(task);
+                    taskHashMap.put(task.getId(), task);
+                }
+            }
+        }
+        touchedEpicIds.forEach(this::updateEpicStatus);
+    }
+
+    // Клиенты, у которых есть история просмотров. null - общая история
+    protected Set<String> getHistoryClientIds() {
+        return historyManager.getClientIds();
+    }
+
+    // Убрать из истории просмотры задачи, если ее уже нет. Задачи удаляются из хранилища раньше, чем из истории,
+    // поэтому если задачи нет, удаление уже прошло и записанный после него просмотр больше никто не уберет
+    protected void forgetViewsIfDeleted(Long id) {
+        if (!containsTask(id)) {
+            historyManager.remove(id);
+        }
+    }
+
+    // Вызывается, когда эпик удаляется вместе с подзадачами или удаляются все задачи типа: ids - удаленные задачи
+    // (например, чтобы удалить из файла только их). Коллекция действительна только во время вызова
+    protected void onTasksDeleted(Collection<Long> ids) {
+    }
+
+    // Число задач, эпиков и подзадач в менеджере
+    protected int getTaskCount() {
+        return taskHashMap.size() + epicHashMap.size() + subTaskHashMap.size();
+    }
+
+    // Есть ли в менеджере задача, эпик или подзадача с таким id
+    protected boolean containsTask(Long id) {
+        return findTask(id) != null;
+    }
+
+    // Задача, эпик или подзадача с таким id или null. Просмотр в историю не записывается
+    protected Task findTask(Long id) {
+        Task task = taskHashMap.get(id);
+        if (task == null) {
+            task = epicHashMap.get(id);
+        }
+        if (task == null) {
+            task = subTaskHashMap.get(id);
+        }
+        return task;
+    }
+
+    // Эпик, с которым подзадача связана в менеджере, или null, если подзадачи нет
+    protected Long getLinkedEpicId(Long subTaskId) {
+        IndexedTask indexedTask = schedulePartitions.get(TaskType.SUBTASK).indexedTasks.get(subTaskId);
+        return indexedTask == null ? null : indexedTask.epicId;
+    }
+
+    // Учтена ли задача в расписании, то есть задано ли у нее время начала
+    protected boolean isScheduled(Long id) {
+        for (SchedulePartition partition : schedulePartitions.values()) {
+            IndexedTask indexedTask = partition.indexedTasks.get(id);
+            if (indexedTask != null) {
+                return indexedTask.startTime != null;
+            }
+        }
+        return false;
+    }
+
+    // Хранилище может быть ConcurrentHashMap, которое не принимает null
+    private boolean hasEpic(Long id) {
+        return id != null && epicHashMap.containsKey(id);
+    }
+
+    // Раздел расписания для одного типа задач
+    private static class SchedulePartition {
+        private final ScheduleIndex scheduleIndex;
+        // Состояние задач, с которым они учтены в расписании и в расчетных полях эпиков.
+        // Задачу могут изменить снаружи до вызова update, поэтому прежние значения берутся отсюда
+        private Map<Long, IndexedTask> indexedTasks;
+        // Ключ (startTime, id): задачи с одинаковым временем начала не схлопываются в одну
+        private NavigableMap<IndexedTask, Task> prioritizedTasks = new TreeMap<>();
+        private final boolean concurrent;
+
+        private SchedulePartition(ScheduleIndex scheduleIndex, boolean concurrent) {
+            this.scheduleIndex = scheduleIndex;
+            this.concurrent = concurrent;
+            this.indexedTasks = newIndexedTasks();
+        }
+
+        // Задачи без времени начала затрагивают только снимки, но не упорядоченный индекс и индекс пересечений
+        private void add(Task task) {
+            remove(task.getId());
+            IndexedTask indexedTask = new IndexedTask(task);
+            indexedTasks.put(task.getId(), indexedTask);
+
+            if (indexedTask.startTime != null) {
+                prioritizedTasks.put(indexedTask, task);
+                scheduleIndex.add(task);
+            }
+        }
+
+        private IndexedTask remove(Long id) {
+            IndexedTask indexedTask = indexedTasks.remove(id);
+            if (indexedTask == null) {
+                return null;
+            }
+
+            if (indexedTask.startTime != null) {
+                prioritizedTasks.remove(indexedTask);
+                scheduleIndex.remove(id);
+            }
+            return indexedTask;
+        }
+
+        // Задачи сортируются один раз, индекс пересечений строится из упорядоченного списка
+        private void addAll(List<? extends Task> tasks) {
+            List<Task> timedTasks = new ArrayList<>();
+            for (Task task : tasks) {
+                remove(task.getId());
+                IndexedTask indexedTask = new IndexedTask(task);
+                indexedTasks.put(task.getId(), indexedTask);
+                if (indexedTask.startTime != null) {
+                    timedTasks.add(task);
+                }
+            }
+
+            timedTasks.sort(Comparator.comparing(Task::getStartTime).thenComparing(Task::getId));
+            for (Task task : timedTasks) {
+                prioritizedTasks.put(indexedTasks.get(task.getId()), task);
+            }
+            scheduleIndex.addAll(timedTasks);
+        }
+
+        // Раздел заменяется пустым, а не очищается поэлементно
+        private void clear() {
+            indexedTasks = newIndexedTasks();
+            prioritizedTasks = new TreeMap<>();
+            scheduleIndex.clear();
+        }
+
+        private Map<Long, IndexedTask> newIndexedTasks() {
+            return concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        }
     }
 
-    private Long getNextId() {
-        return nextId++;
+    // Слияние упорядоченных разделов расписания: на каждом шаге берется наименьшая из текущих задач разделов
+    private static class MergingIterator implements Iterator<Task> {
+        private final PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+
+        private MergingIterator(List<NavigableMap<IndexedTask, Task>> views) {
+            for (NavigableMap<IndexedTask, Task> view : views) {
+                Cursor cursor = new Cursor(view.entrySet().iterator());
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !cursors.isEmpty();
+        }
+
+        @Override
+        public Task next() {
+            Cursor cursor = cursors.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+
+            Task task = cursor.current.getValue();
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            return task;
+        }
+
+        private static class Cursor implements Comparable<Cursor> {
+            private final Iterator<Map.Entry<IndexedTask, Task>> iterator;
+            private Map.Entry<IndexedTask, Task> current;
+
+            private Cursor(Iterator<Map.Entry<IndexedTask, Task>> iterator) {
+                this.iterator = iterator;
+            }
+
+            private boolean advance() {
+                current = iterator.hasNext() ? iterator.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public int compareTo(Cursor other) {
+                return current.getKey().compareTo(other.current.getKey());
+            }
+        }
+    }
+
+    // Снимок полей задачи, которые участвуют в расписании и в расчетных полях эпика
+    private static class IndexedTask implements Comparable<IndexedTask> {
+        private final Long id;
+        private final LocalDateTime startTime;
+        private final Duration duration;
+        private final TaskStatus status;
+        private final Long epicId;
+
+        private IndexedTask(Task task) {
+            this.id = task.getId();
+            this.startTime = task.getStartTime();
+            this.duration = task.getDuration();
+            this.status = task.getStatus();
+            this.epicId = task instanceof SubTask ? ((SubTask) task).getEpicId() : null;
+        }
+
+        private IndexedTask(LocalDateTime startTime) {
+            this.id = null;
+            this.startTime = startTime;
+            this.duration = Duration.ZERO;
+            this.status = null;
+            this.epicId = null;
+        }
+
+        // Ключ для поиска в расписании: без id располагается раньше всех задач с тем же временем начала
+        private static IndexedTask probe(LocalDateTime time) {
+            return new IndexedTask(time);
+        }
+
+        @Override
+        public int compareTo(IndexedTask other) {
+            int compare = startTime.compareTo(other.startTime);
+            if (compare != 0 || Objects.equals(id, other.id)) {
+                return compare;
+            }
+            if (id == null) {
+                return -1;
+            }
+            return other.id == null ? 1 : id.compareTo(other.id);
+        }
     }
 }
@@ -0,0 +1,247 @@
+package kanban.manager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import kanban.model.Task;
+
+// Индекс интервалов [startTime, endTime) задач для поиска пересечений за O(log N)
+public class IntervalTree implements ScheduleIndex {
+    private Map<Long, Entry> entryMap = new HashMap<>();
+    private Entry root;
+
+    // Задачи без времени начала не индексируются
+    @Override
+    public void add(Task task) {
+        remove(task.getId());
+
+        if (task.getStartTime() == null) {
+            return;
+        }
+
+        Entry entry = new Entry(task.getId(), task.getStartTime(), task.getEndTime());
+        root = insert(root, entry);
+        entryMap.put(entry.id, entry);
+    }
+
+    // Пустой индекс строится из упорядоченных задач сразу сбалансированным деревом за O(N)
+    @Override
+    public void addAll(List<? extends Task> sortedTasks) {
+        if (root != null) {
+            ScheduleIndex.super.addAll(sortedTasks);
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(sortedTasks.size());
+        for (Task task : sortedTasks) {
+            if (task.getStartTime() != null) {
+                Entry entry = new Entry(task.getId(), task.getStartTime(), task.getEndTime());
+                entries.add(entry);
+                entryMap.put(entry.id, entry);
+            }
+        }
+        root = build(entries, 0, entries.size());
+    }
+
+    @Override
+    public void remove(Long id) {
+        Entry entry = entryMap.remove(id);
+
+        if (entry != null) {
+            root = delete(root, entry);
+        }
+    }
+
+    @Override
+    public void clear() {
+        entryMap = new HashMap<>();
+        root = null;
+    }
+
+    public int size() {
+        return entryMap.size();
+    }
+
+    @Override
+    public boolean hasOverlapExcluding(LocalDateTime start, LocalDateTime end, Set<Long> excludedIds) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return false;
+        }
+
+        return hasOverlap(root, start, end, excludedIds);
+    }
+
+    // Спускаемся только в поддеревья, где maxEnd > start. Исключаемые задачи могут заставить
+    // продолжить поиск, но среди уже проиндексированных задач пересечений нет, поэтому путь остается O(k log N)
+    private boolean hasOverlap(Entry entry, LocalDateTime start, LocalDateTime end, Set<Long> excludedIds) {
+        if (entry == null || !entry.maxEnd.isAfter(start)) {
+            return false;
+        }
+
+        if (hasOverlap(entry.left, start, end, excludedIds)) {
+            return true;
+        }
+
+        if (!entry.start.isBefore(end)) {
+            // Все задачи справа начинаются не раньше окончания интервала
+            return false;
+        }
+
+        if (entry.end.isAfter(start) && entry.start.isBefore(entry.end) && !excludedIds.contains(entry.id)) {
+            return true;
+        }
+
+        return hasOverlap(entry.right, start, end, excludedIds);
+    }
+
+    // Середина отрезка становится корнем, поэтому высоты поддеревьев отличаются не больше чем на 1
+    private Entry build(List<Entry> entries, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+
+        int middle = (from + to) >>> 1;
+        Entry node = entries.get(middle);
+        node.left = build(entries, from, middle);
+        node.right = build(entries, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    private Entry insert(Entry node, Entry entry) {
+        if (node == null) {
+            return entry;
+        }
+
+        if (entry.compareTo(node) < 0) {
+            node.left = insert(node.left, entry);
+        } else {
+            node.right = insert(node.right, entry);
+        }
+
+        return rebalance(node);
+    }
+
+    private Entry delete(Entry node, Entry entry) {
+        if (node == null) {
+            return null;
+        }
+
+        int compare = entry.compareTo(node);
+        if (compare < 0) {
+            node.left = delete(node.left, entry);
+        } else if (compare > 0) {
+            node.right = delete(node.right, entry);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+
+            // Заменяем узел минимальным из правого поддерева
+            Entry successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return rebalance(node);
+    }
+
+    private Entry deleteMin(Entry node) {
+        if (node.left == null) {
+            return node.right;
+        }
+
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+
+    private Entry rebalance(Entry node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+
+        return node;
+    }
+
+    private Entry rotateRight(Entry node) {
+        Entry left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Entry rotateLeft(Entry node) {
+        Entry right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    // Пересчитать высоту и максимальное время окончания узла по его потомкам
+    private void update(Entry node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.maxEnd = node.end;
+
+        if (node.left != null && node.left.maxEnd.isAfter(node.maxEnd)) {
+            node.maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(node.maxEnd)) {
+            node.maxEnd = node.right.maxEnd;
+        }
+    }
+
+    private int height(Entry node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final Long id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Entry left;
+        private Entry right;
+
+        private Entry(Long id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int compare = start.compareTo(other.start);
+            return compare != 0 ? compare : id.compareTo(other.id);
+        }
+    }
+}
@@ -1,19 +1,60 @@
 package kanban.manager;
 
 import java.io.File;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public class Managers {
     private static final String fileName = "data.csv";
+    private static final Duration DEFAULT_SLOT_DURATION = Duration.ofMinutes(15);
+    private static final Duration DEFAULT_GRID_HORIZON = Duration.ofDays(366);
+    private static final int DEFAULT_CLIENT_HISTORY_CAPACITY = 1_000;
+    private static final long DEFAULT_HISTORY_MEMORY_BUDGET = 256L * 1024 * 1024;
 
+    // История просмотров ведется отдельно для каждого клиента HTTP-сервера
     public static TaskManager getDefault() {
-        return new InMemoryTaskManager();
+        return new InMemoryTaskManager(getPartitionedHistory());
+    }
+
+    // Потокобезопасный менеджер для обработчиков, выполняющихся в нескольких потоках
+    public static TaskManager getConcurrentTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    // Менеджер с календарем занятости: сетка по 15 минут на год вперед от начала текущего дня
+    public static TaskManager getGridTaskManager() {
+        return getGridTaskManager(LocalDate.now().atStartOfDay(), DEFAULT_SLOT_DURATION, DEFAULT_GRID_HORIZON);
+    }
+
+    public static TaskManager getGridTaskManager(LocalDateTime origin, Duration slotDuration, Duration horizon) {
+        return new InMemoryTaskManager(() -> new OccupancyGrid(origin, slotDuration, horizon));
     }
 
     public static FileBackedTaskManager getFileBackedTaskManager() {
         return new FileBackedTaskManager(new File(fileName));
     }
 
+    // Менеджер, который дописывает изменения в журнал рядом с файлом данных и перезаписывает файл периодически
+    public static FileBackedTaskManager getFileBackedTaskManager(StorageMode storageMode) {
+        return new FileBackedTaskManager(new File(fileName), getDefaultHistory(), storageMode);
+    }
+
+    // История ограничена емкостью InMemoryHistoryManager.DEFAULT_CAPACITY просмотров
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    // История, разделенная по клиентам HTTP-сервера: по 1000 просмотров на клиента, не больше 256 МБ на все истории
+    public static HistoryManager getPartitionedHistory() {
+        return getPartitionedHistory(DEFAULT_CLIENT_HISTORY_CAPACITY, DEFAULT_HISTORY_MEMORY_BUDGET);
+    }
+
+    public static HistoryManager getPartitionedHistory(int clientCapacity, long memoryBudget) {
+        return new PartitionedHistoryManager(clientCapacity, memoryBudget);
+    }
 }
@@ -0,0 +1,148 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import kanban.model.Task;
+
+// Календарь занятости на фиксированной сетке слотов (например, 15 минут на год вперед)
+public class OccupancyGrid implements ScheduleIndex {
+    private final LocalDateTime origin;
+    private final long slotSeconds;
+    private final int slotCount;
+    private final long[] occupiedSlots;
+    private final long[] slotOwners;
+    // id задачи -> занятые ей слоты [from, to), упакованные в одно число
+    private Map<Long, Long> gridTasks = new HashMap<>();
+    private final ScheduleIndex offGridTasks = new IntervalTree();
+
+    public OccupancyGrid(LocalDateTime origin, Duration slotDuration, Duration horizon) {
+        if (slotDuration.isNegative() || slotDuration.isZero() || slotDuration.getNano() != 0) {
+            throw new IllegalArgumentException("Размер слота должен быть положительным целым числом секунд");
+        }
+
+        long slots = horizon.getSeconds() / slotDuration.getSeconds();
+        if (slots <= 0 || slots > Integer.MAX_VALUE - Long.SIZE) {
+            throw new IllegalArgumentException("Некорректный горизонт планирования");
+        }
+
+        this.origin = origin;
+        this.slotSeconds = slotDuration.getSeconds();
+        this.slotCount = (int) slots;
+        this.occupiedSlots = new long[(slotCount + Long.SIZE - 1) / Long.SIZE];
+        this.slotOwners = new long[slotCount];
+    }
+
+    @Override
+    public void add(Task task) {
+        remove(task.getId());
+
+        if (task.getStartTime() == null) {
+            return;
+        }
+
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (!isAligned(start) || !isAligned(end) || !start.isBefore(end)) {
+            offGridTasks.add(task);
+            return;
+        }
+
+        long from = floorSlot(start);
+        long to = floorSlot(end);
+        if (from < 0 || to > slotCount) {
+            offGridTasks.add(task);
+            return;
+        }
+
+        for (int slot = (int) from; slot < to; slot++) {
+            occupiedSlots[slot >>> 6] |= 1L << slot;
+            slotOwners[slot] = task.getId();
+        }
+        gridTasks.put(task.getId(), from << 32 | to);
+    }
+
+    @Override
+    public void remove(Long id) {
+        Long slots = gridTasks.remove(id);
+
+        if (slots == null) {
+            offGridTasks.remove(id);
+            return;
+        }
+
+        int from = (int) (slots >>> 32);
+        int to = (int) (long) slots;
+        for (int slot = from; slot < to; slot++) {
+            occupiedSlots[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    @Override
+    public void clear() {
+        // Владельцы слотов читаются только для занятых слотов, поэтому их не очищаем
+        gridTasks = new HashMap<>();
+        offGridTasks.clear();
+        Arrays.fill(occupiedSlots, 0L);
+    }
+
+    @Override
+    public boolean hasOverlapExcluding(LocalDateTime start, LocalDateTime end, Set<Long> excludedIds) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return false;
+        }
+
+        return hasGridOverlap(start, end, excludedIds)
+                || offGridTasks.hasOverlapExcluding(start, end, excludedIds);
+    }
+
+    // Задачи на сетке занимают слоты целиком, поэтому пересечение с любым занятым слотом - это пересечение
+    // с задачей. Проверяем слоты по 64 за раз
+    private boolean hasGridOverlap(LocalDateTime start, LocalDateTime end, Set<Long> excludedIds) {
+        long from = Math.max(floorSlot(start), 0);
+        long to = Math.min(ceilSlot(end), slotCount);
+        if (from >= to) {
+            return false;
+        }
+
+        int firstWord = (int) (from >>> 6);
+        int lastWord = (int) ((to - 1) >>> 6);
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << from;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (Long.SIZE - 1 - ((to - 1) & 63));
+            }
+
+            long bits = occupiedSlots[word] & mask;
+            while (bits != 0) {
+                int slot = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                if (!excludedIds.contains(slotOwners[slot])) {
+                    return true;
+                }
+                bits &= bits - 1;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isAligned(LocalDateTime time) {
+        Duration offset = Duration.between(origin, time);
+        return offset.getNano() == 0 && Math.floorMod(offset.getSeconds(), slotSeconds) == 0;
+    }
+
+    private long floorSlot(LocalDateTime time) {
+        return Math.floorDiv(Duration.between(origin, time).getSeconds(), slotSeconds);
+    }
+
+    private long ceilSlot(LocalDateTime time) {
+        return isAligned(time) ? floorSlot(time) : floorSlot(time) + 1;
+    }
+}
@@ -0,0 +1,622 @@
+package kanban.manager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import kanban.exception.ManagerSaveException;
+
+// Файл записей из страниц фиксированного размера. Экземпляр не потокобезопасен, кроме write
+public class PageStore {
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    private static final byte[] MAGIC = {'K', 'N', 'P', 'G'};
+    private static final byte VERSION = 1;
+    private static final int MIN_PAGE_SIZE = 64;
+    private static final int MAX_PAGE_SIZE = 1 << 15;
+    private static final byte FREE = 0;
+    private static final byte SLOTTED = 1;
+    private static final byte EXTENT = 2;
+    private static final byte EXTENT_NEXT = 3;
+    private static final int TYPE = 4;
+    private static final int PAGE_DATA = 5;
+    private static final int SLOT_COUNT = 5;
+    private static final int RECORDS_START = 7;
+    private static final int SLOTS = 9;
+    private static final int SLOT_SIZE = 4;
+    private static final int EXTENT_PAGES = 5;
+    private static final int EXTENT_LENGTH = 9;
+    private static final int EXTENT_DATA = 13;
+    private static final int EXTENT_SLOT = 0xFFFF;
+    // Копия страниц перед записью по месту хранится рядом с файлом
+    private static final String DOUBLE_WRITE_SUFFIX = ".doublewrite";
+    private static final byte[] DOUBLE_WRITE_MAGIC = {'K', 'N', 'D', 'W'};
+    private static final int DOUBLE_WRITE_DATA = 12;
+    private final int pageSize;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    // id записи -> номер страницы и номер слота (EXTENT_SLOT для записи на нескольких страницах),
+    // упакованные в одно число
+    private final Map<Long, Long> locations = new HashMap<>();
+    // Страницы со слотами, упорядоченные по свободному месту: свободные байты и номер страницы в одном числе
+    private final TreeSet<Long> slottedPages = new TreeSet<>();
+    private int[] freeBytes = new int[16];
+    private final TreeSet<Integer> freePages = new TreeSet<>();
+    private final BitSet dirtyPages = new BitSet();
+    // Файл еще не записан: при следующей записи он записывается целиком
+    private boolean complete;
+
+    // Пустое хранилище. Файл, в который оно записывается впервые, заменяется целиком
+    public PageStore(int pageSize) {
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от " + MIN_PAGE_SIZE + " до "
+                    + MAX_PAGE_SIZE + " байт");
+        }
+
+        this.pageSize = pageSize;
+        ByteBuffer header = ByteBuffer.allocate(pageSize);
+        header.put(MAGIC).put(VERSION).putInt(pageSize);
+        pages.add(header);
+        dirtyPages.set(0);
+        complete = true;
+    }
+
+    // Начинается ли содержимое с заголовка файла страниц
+    public static boolean isPageFile(ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Прочитать файл страниц с текущей позиции буфера и построить индекс записей
+    public static PageStore read(ByteBuffer content) {
+        if (!isPageFile(content) || content.remaining() < EXTENT_DATA) {
+            throw new IllegalArgumentException("Файл не является файлом страниц");
+        }
+        int start = content.position();
+        byte version = content.get(start + MAGIC.length);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия файла страниц: " + version);
+        }
+        int pageSize = content.getInt(start + MAGIC.length + 1);
+        PageStore pageStore = new PageStore(pageSize);
+        if (content.remaining() % pageSize != 0) {
+            throw new IllegalArgumentException("Файл страниц обрезан");
+        }
+
+        int pageCount = content.remaining() / pageSize;
+        pageStore.pages.clear();
+        pageStore.freeBytes = new int[Math.max(pageCount, pageStore.freeBytes.length)];
+        for (int page = 0; page < pageCount; page++) {
+            ByteBuffer image = ByteBuffer.allocate(pageSize);
+            image.put(content.slice(start + page * pageSize, pageSize)).clear();
+            pageStore.pages.add(image);
+            if (page > 0 && image.getInt(0) != checksum(image)) {
+                throw new IllegalArgumentException("Контрольная сумма страницы " + page + " не совпадает");
+            }
+        }
+        pageStore.dirtyPages.clear();
+        pageStore.complete = false;
+        pageStore.indexPages();
+        return pageStore;
+    }
+
+    private void indexPages() {
+        for (int page = 1; page < pages.size(); page++) {
+            ByteBuffer image = pages.get(page);
+            byte type = image.get(TYPE);
+            if (type == FREE) {
+                freePages.add(page);
+            } else if (type == SLOTTED) {
+                int used = SLOTS + slotCount(image) * SLOT_SIZE;
+                for (int slot = 0; slot < slotCount(image); slot++) {
+                    int length = slotLength(image, slot);
+                    if (length > 0) {
+                        locations.put(image.getLong(slotOffset(image, slot)), location(page, slot));
+                        used += length;
+                    }
+                }
+                setFreeBytes(page, pageSize - used);
+            } else if (type == EXTENT) {
+                locations.put(image.getLong(EXTENT_DATA), location(page, EXTENT_SLOT));
+                page += image.getInt(EXTENT_PAGES) - 1;
+            } else {
+                throw new IllegalArgumentException("Некорректный тип страницы " + page + ": " + type);
+            }
+        }
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // Число страниц в файле вместе с заголовком
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public Set<Long> ids() {
+        return Collections.unmodifiableSet(locations.keySet());
+    }
+
+    public boolean contains(long id) {
+        return locations.containsKey(id);
+    }
+
+    // Байты записи или null, если записи нет
+    public ByteBuffer get(long id) {
+        Long location = locations.get(id);
+        if (location == null) {
+            return null;
+        }
+
+        int page = page(location);
+        ByteBuffer image = pages.get(page);
+        if (slot(location) != EXTENT_SLOT) {
+            int slot = slot(location);
+            return image.slice(slotOffset(image, slot) + Long.BYTES, slotLength(image, slot) - Long.BYTES)
+                    .asReadOnlyBuffer();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(image.getInt(EXTENT_LENGTH) - Long.BYTES);
+        copyFromExtent(page, EXTENT_DATA + Long.BYTES, record);
+        return record.flip();
+    }
+
+    // Добавить или заменить запись. Запись, которая помещается в свою прежнюю страницу, остается в ней
+    public void put(long id, ByteBuffer data) {
+        int length = Long.BYTES + data.remaining();
+        if (length > maxSlottedRecord()) {
+            remove(id);
+            putExtent(id, data, length);
+            return;
+        }
+
+        Long location = locations.get(id);
+        int preferredPage = location != null && slot(location) != EXTENT_SLOT ? page(location) : 0;
+        remove(id);
+
+        int page;
+        if (preferredPage != 0 && pages.get(preferredPage).get(TYPE) == SLOTTED
+                && freeBytes[preferredPage] >= length + SLOT_SIZE) {
+            page = preferredPage;
+        } else {
+            Long candidate = slottedPages.ceiling((long) (length + SLOT_SIZE) << 32);
+            page = candidate != null ? (int) (long) candidate : allocateSlottedPage();
+        }
+        insert(page, id, data, length);
+    }
+
+    public void remove(long id) {
+        Long location = locations.remove(id);
+        if (location == null) {
+            return;
+        }
+
+        int page = page(location);
+        if (slot(location) == EXTENT_SLOT) {
+            int count = pages.get(page).getInt(EXTENT_PAGES);
+            for (int i = 0; i < count; i++) {
+                freePage(page + i);
+            }
+            return;
+        }
+
+        ByteBuffer image = pages.get(page);
+        int slot = slot(location);
+        int released = slotLength(image, slot);
+        setSlot(image, slot, 0, 0);
+        // Свободные слоты в конце каталога убираем, остальные переиспользуются следующими записями
+        int slotCount = slotCount(image);
+        while (slotCount > 0 && slotLength(image, slotCount - 1) == 0) {
+            slotCount--;
+            released += SLOT_SIZE;
+        }
+        image.putShort(SLOT_COUNT, (short) slotCount);
+
+        if (slotCount == 0) {
+            slottedPages.remove(freeSpaceKey(page));
+            freePage(page);
+        } else {
+            setFreeBytes(page, freeBytes[page] + released);
+            dirtyPages.set(page);
+        }
+    }
+
+    private void insert(int page, long id, ByteBuffer data, int length) {
+        ByteBuffer image = pages.get(page);
+        int slotCount = slotCount(image);
+        int slot = 0;
+        while (slot < slotCount && slotLength(image, slot) != 0) {
+            slot++;
+        }
+        int newSlotCount = Math.max(slotCount, slot + 1);
+
+        if (recordsStart(image) - (SLOTS + newSlotCount * SLOT_SIZE) < length) {
+            compact(image);
+        }
+
+        int offset = recordsStart(image) - length;
+        image.putLong(offset, id);
+        image.put(offset + Long.BYTES, data, data.position(), data.remaining());
+        image.putShort(RECORDS_START, (short) offset);
+        image.putShort(SLOT_COUNT, (short) newSlotCount);
+        setSlot(image, slot, offset, length);
+
+        setFreeBytes(page, freeBytes[page] - length - (newSlotCount - slotCount) * SLOT_SIZE);
+        locations.put(id, location(page, slot));
+        dirtyPages.set(page);
+    }
+
+    // Сдвинуть записи страницы к ее концу, чтобы свободное место стало непрерывным. Слоты не меняются
+    private void compact(ByteBuffer image) {
+        byte[] records = new byte[pageSize];
+        int recordsStart = pageSize;
+        for (int slot = 0; slot < slotCount(image); slot++) {
+            int length = slotLength(image, slot);
+            if (length > 0) {
+                recordsStart -= length;
+                image.get(slotOffset(image, slot), records, recordsStart, length);
+                setSlot(image, slot, recordsStart, length);
+            }
+        }
+        image.put(recordsStart, records, recordsStart, pageSize - recordsStart);
+        image.putShort(RECORDS_START, (short) recordsStart);
+    }
+
+    private int allocateSlottedPage() {
+        Integer freePage = freePages.pollFirst();
+        int page = freePage != null ? freePage : appendPage();
+        ByteBuffer image = pages.get(page);
+        Arrays.fill(image.array(), (byte) 0);
+        image.put(TYPE, SLOTTED);
+        image.putShort(SLOT_COUNT, (short) 0);
+        image.putShort(RECORDS_START, (short) pageSize);
+        setFreeBytes(page, pageSize - SLOTS);
+        dirtyPages.set(page);
+        return page;
+    }
+
+    private void putExtent(long id, ByteBuffer data, int length) {
+        // Первая страница вмещает pageSize - EXTENT_DATA байт записи, следующие - pageSize - PAGE_DATA
+        int rest = Math.max(0, length - (pageSize - EXTENT_DATA));
+        int count = 1 + (rest + pageSize - PAGE_DATA - 1) / (pageSize - PAGE_DATA);
+        int first = allocateRun(count);
+
+        for (int i = 0; i < count; i++) {
+            ByteBuffer image = pages.get(first + i);
+            Arrays.fill(image.array(), (byte) 0);
+            image.put(TYPE, i == 0 ? EXTENT : EXTENT_NEXT);
+            dirtyPages.set(first + i);
+        }
+        ByteBuffer head = pages.get(first);
+        head.putInt(EXTENT_PAGES, count);
+        head.putInt(EXTENT_LENGTH, length);
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putLong(id).put(data.duplicate()).flip();
+        int page = first;
+        int offset = EXTENT_DATA;
+        while (record.hasRemaining()) {
+            int chunk = Math.min(record.remaining(), pageSize - offset);
+            pages.get(page).put(offset, record, record.position(), chunk);
+            record.position(record.position() + chunk);
+            page++;
+            offset = PAGE_DATA;
+        }
+        locations.put(id, location(first, EXTENT_SLOT));
+    }
+
+    private void copyFromExtent(int first, int offset, ByteBuffer target) {
+        int page = first;
+        while (target.hasRemaining()) {
+            int chunk = Math.min(target.remaining(), pageSize - offset);
+            target.put(pages.get(page).slice(offset, chunk));
+            page++;
+            offset = PAGE_DATA;
+        }
+    }
+
+    // Первая из count свободных страниц подряд. Если таких нет, страницы добавляются в конец файла
+    private int allocateRun(int count) {
+        int runStart = -1;
+        int runLength = 0;
+        for (int page : freePages) {
+            if (runLength > 0 && page == runStart + runLength) {
+                runLength++;
+            } else {
+                runStart = page;
+                runLength = 1;
+            }
+            if (runLength == count) {
+                for (int i = 0; i < count; i++) {
+                    freePages.remove(runStart + i);
+                }
+                return runStart;
+            }
+        }
+
+        // Свободные страницы в конце файла продолжаются новыми
+        int first = pages.size();
+        while (first > 1 && freePages.contains(first - 1)) {
+            first--;
+        }
+        for (int page = first; page < pages.size(); page++) {
+            freePages.remove(page);
+        }
+        while (pages.size() < first + count) {
+            appendPage();
+        }
+        return first;
+    }
+
+    private int appendPage() {
+        pages.add(ByteBuffer.allocate(pageSize));
+        int page = pages.size() - 1;
+        if (freeBytes.length <= page) {
+            freeBytes = Arrays.copyOf(freeBytes, freeBytes.length * 2);
+        }
+        return page;
+    }
+
+    private void freePage(int page) {
+        ByteBuffer image = pages.get(page);
+        Arrays.fill(image.array(), (byte) 0);
+        image.put(TYPE, FREE);
+        freeBytes[page] = 0;
+        freePages.add(page);
+        dirtyPages.set(page);
+    }
+
+    private void setFreeBytes(int page, int bytes) {
+        slottedPages.remove(freeSpaceKey(page));
+        freeBytes[page] = bytes;
+        slottedPages.add(freeSpaceKey(page));
+    }
+
+    private long freeSpaceKey(int page) {
+        return (long) freeBytes[page] << 32 | page;
+    }
+
+    private int maxSlottedRecord() {
+        return pageSize - SLOTS - SLOT_SIZE;
+    }
+
+    // Забрать измененные страницы для записи: копии с контрольными суммами. Вызывается там же, где изменения
+    public PageWrites takeDirtyPages() {
+        if (complete) {
+            dirtyPages.set(0, pages.size());
+        }
+        Map<Integer, byte[]> images = new LinkedHashMap<>();
+        for (int page = dirtyPages.nextSetBit(0); page >= 0; page = dirtyPages.nextSetBit(page + 1)) {
+            ByteBuffer image = pages.get(page);
+            if (page > 0) {
+                image.putInt(0, checksum(image));
+            }
+            images.put(page, image.array().clone());
+        }
+
+        PageWrites pageWrites = new PageWrites(images, complete);
+        dirtyPages.clear();
+        complete = false;
+        return pageWrites;
+    }
+
+    // Вернуть страницы, запись которых не удалась: они будут записаны в следующий раз
+    public void retry(PageWrites pageWrites) {
+        pageWrites.images.keySet().forEach(dirtyPages::set);
+        if (pageWrites.isComplete()) {
+            complete = true;
+            dirtyPages.set(0, pages.size());
+        }
+    }
+
+    // Записать страницы в файл. Новый файл пишется во временный файл и атомарно подменяет прежний.
+    // Остальные страницы сначала целиком записываются в файл двойной записи и только потом по месту:
+    // если процесс прервется во время записи по месту, страницы восстановит recover
+    public void write(Path path, PageWrites pageWrites, boolean force) {
+        if (pageWrites.images.isEmpty()) {
+            return;
+        }
+
+        Path doubleWrite = doubleWritePath(path);
+        if (pageWrites.isComplete()) {
+            Path target = Path.of(path + ".tmp");
+            writePages(target, pageSize, pageWrites.images, true, force);
+            try {
+                // Копия страниц относится к прежнему файлу и не должна применяться к новому
+                Files.deleteIfExists(doubleWrite);
+                Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ioException) {
+                throw new ManagerSaveException(ioException.getMessage());
+            }
+            return;
+        }
+
+        writeDoubleWrite(doubleWrite, pageWrites, force);
+        writePages(path, pageSize, pageWrites.images, false, force);
+        // Страницы записаны по месту, копия больше не нужна
+        try (FileChannel channel = FileChannel.open(doubleWrite, StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+    }
+
+    // Копия страниц одной записи: "KNDW", размер страницы (int), число страниц (int), номер и образ каждой
+    // страницы, CRC32 всего предыдущего содержимого (int). Пишется до записи страниц по месту
+    void writeDoubleWrite(Path doubleWrite, PageWrites pageWrites, boolean force) {
+        ByteBuffer content = ByteBuffer.allocate(DOUBLE_WRITE_DATA
+                + pageWrites.images.size() * (Integer.BYTES + pageSize) + Integer.BYTES);
+        content.put(DOUBLE_WRITE_MAGIC).putInt(pageSize).putInt(pageWrites.images.size());
+        pageWrites.images.forEach((page, image) -> content.putInt(page).put(image));
+        CRC32 crc = new CRC32();
+        crc.update(content.array(), 0, content.position());
+        content.putInt((int) crc.getValue()).flip();
+
+        try (FileChannel channel = FileChannel.open(doubleWrite, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+    }
+
+    // Применить к файлу копию страниц, если запись по месту могла прерваться: после этого файл содержит
+    // все страницы последней записи. Недописанная копия означает, что запись по месту не начиналась
+    public static void recover(Path path) {
+        Path doubleWrite = doubleWritePath(path);
+        if (!Files.exists(doubleWrite)) {
+            return;
+        }
+
+        try {
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(doubleWrite));
+            if (isValidDoubleWrite(content)) {
+                int pageSize = content.getInt(DOUBLE_WRITE_MAGIC.length);
+                int pageCount = content.getInt(DOUBLE_WRITE_MAGIC.length + Integer.BYTES);
+                Map<Integer, byte[]> images = new LinkedHashMap<>();
+                for (int i = 0; i < pageCount; i++) {
+                    int offset = DOUBLE_WRITE_DATA + i * (Integer.BYTES + pageSize);
+                    byte[] image = new byte[pageSize];
+                    content.get(offset + Integer.BYTES, image);
+                    images.put(content.getInt(offset), image);
+                }
+                writePages(path, pageSize, images, false, true);
+            }
+            Files.delete(doubleWrite);
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+    }
+
+    private static boolean isValidDoubleWrite(ByteBuffer content) {
+        if (content.remaining() < DOUBLE_WRITE_DATA + Integer.BYTES) {
+            return false;
+        }
+        for (int i = 0; i < DOUBLE_WRITE_MAGIC.length; i++) {
+            if (content.get(i) != DOUBLE_WRITE_MAGIC[i]) {
+                return false;
+            }
+        }
+        int pageSize = content.getInt(DOUBLE_WRITE_MAGIC.length);
+        int pageCount = content.getInt(DOUBLE_WRITE_MAGIC.length + Integer.BYTES);
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE || pageCount < 0
+                || content.remaining() != DOUBLE_WRITE_DATA + (long) pageCount * (Integer.BYTES + pageSize)
+                + Integer.BYTES) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(content.array(), 0, content.remaining() - Integer.BYTES);
+        return content.getInt(content.remaining() - Integer.BYTES) == (int) crc.getValue();
+    }
+
+    private static void writePages(Path path, int pageSize, Map<Integer, byte[]> images, boolean truncate,
+                                   boolean force) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (truncate) {
+                channel.truncate(0);
+            }
+            for (Map.Entry<Integer, byte[]> entry : images.entrySet()) {
+                ByteBuffer buffer = ByteBuffer.wrap(entry.getValue());
+                long position = (long) entry.getKey() * pageSize;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException ioException) {
+            throw new ManagerSaveException(ioException.getMessage());
+        }
+    }
+
+    static Path doubleWritePath(Path path) {
+        return Path.of(path + DOUBLE_WRITE_SUFFIX);
+    }
+
+    private static int checksum(ByteBuffer image) {
+        CRC32 crc = new CRC32();
+        crc.update(image.slice(TYPE, image.capacity() - TYPE));
+        return (int) crc.getValue();
+    }
+
+    private static int slotCount(ByteBuffer image) {
+        return Short.toUnsignedInt(image.getShort(SLOT_COUNT));
+    }
+
+    private static int recordsStart(ByteBuffer image) {
+        int recordsStart = Short.toUnsignedInt(image.getShort(RECORDS_START));
+        return recordsStart == 0 ? image.capacity() : recordsStart;
+    }
+
+    private static int slotOffset(ByteBuffer image, int slot) {
+        return Short.toUnsignedInt(image.getShort(SLOTS + slot * SLOT_SIZE));
+    }
+
+    private static int slotLength(ByteBuffer image, int slot) {
+        return Short.toUnsignedInt(image.getShort(SLOTS + slot * SLOT_SIZE + 2));
+    }
+
+    private static void setSlot(ByteBuffer image, int slot, int offset, int length) {
+        image.putShort(SLOTS + slot * SLOT_SIZE, (short) offset);
+        image.putShort(SLOTS + slot * SLOT_SIZE + 2, (short) length);
+    }
+
+    private static long location(int page, int slot) {
+        return (long) page << 16 | slot;
+    }
+
+    private static int page(long location) {
+        return (int) (location >>> 16);
+    }
+
+    private static int slot(long location) {
+        return (int) (location & 0xFFFF);
+    }
+
+    // Страницы для записи и признак того, что это все страницы файла
+    public static class PageWrites {
+        private final Map<Integer, byte[]> images;
+        private final boolean complete;
+
+        private PageWrites(Map<Integer, byte[]> images, boolean complete) {
+            this.images = images;
+            this.complete = complete;
+        }
+
+        public Set<Integer> getPages() {
+            return images.keySet();
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package kanban.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import kanban.model.Task;
+
+// Разбор CSV-файла данных по частям в общем пуле ForkJoinPool
+public class ParallelCsvLoader {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private ParallelCsvLoader() {
+    }
+
+    // Разобрать записи после заголовка. content - содержимое файла, например отображенное в память
+    public static List<Task> load(ByteBuffer content) {
+        return load(content, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static List<Task> load(ByteBuffer content, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер части должен быть положительным");
+        }
+
+        // В заголовке нет кавычек
+        int bodyStart = recordStart(content, content.position(), content.limit(), false);
+        int bodyEnd = content.limit();
+        int chunkCount = Math.max(1, (int) (((long) bodyEnd - bodyStart + chunkSize - 1) / chunkSize));
+
+        int[] quoteCounts = IntStream.range(0, chunkCount).parallel()
+                .map(chunk -> countQuotes(content, chunkStart(bodyStart, bodyEnd, chunkSize, chunk),
+                        chunkStart(bodyStart, bodyEnd, chunkSize, chunk + 1)))
+                .toArray();
+        boolean[] startsInQuotes = new boolean[chunkCount];
+        for (int chunk = 1; chunk < chunkCount; chunk++) {
+            startsInQuotes[chunk] = startsInQuotes[chunk - 1] ^ (quoteCounts[chunk - 1] & 1) == 1;
+        }
+
+        int[] boundaries = IntStream.rangeClosed(0, chunkCount).parallel()
+                .map(chunk -> {
+                    if (chunk == 0) {
+                        return bodyStart;
+                    } else if (chunk == chunkCount) {
+                        return bodyEnd;
+                    }
+                    int start = chunkStart(bodyStart, bodyEnd, chunkSize, chunk);
+                    // Часть, начинающаяся сразу после перевода строки, уже начинается с записи
+                    if (!startsInQuotes[chunk] && content.get(start - 1) == '\n') {
+                        return start;
+                    }
+                    return recordStart(content, start, bodyEnd, startsInQuotes[chunk]);
+                })
+                .toArray();
+        // Длинная запись может перекрыть несколько частей целиком
+        for (int chunk = 1; chunk <= chunkCount; chunk++) {
+            boundaries[chunk] = Math.max(boundaries[chunk], boundaries[chunk - 1]);
+        }
+
+        List<List<Task>> parts = IntStream.range(0, chunkCount).parallel()
+                .mapToObj(chunk -> parse(content, boundaries[chunk], boundaries[chunk + 1]))
+                .toList();
+
+        List<Task> tasks = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(tasks::addAll);
+        return tasks;
+    }
+
+    private static int chunkStart(int bodyStart, int bodyEnd, int chunkSize, int chunk) {
+        return (int) Math.min(bodyStart + (long) chunk * chunkSize, bodyEnd);
+    }
+
+    private static int countQuotes(ByteBuffer content, int from, int to) {
+        int quotes = 0;
+        for (int position = from; position < to; position++) {
+            if (content.get(position) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    // Начало первой записи после позиции from или to, если записей больше нет
+    private static int recordStart(ByteBuffer content, int from, int to, boolean inQuotes) {
+        for (int position = from; position < to; position++) {
+            byte value = content.get(position);
+            if (value == '"') {
+                inQuotes = !inQuotes;
+            } else if (value == '\n' && !inQuotes) {
+                return position + 1;
+            }
+        }
+        return to;
+    }
+
+    private static List<Task> parse(ByteBuffer content, int from, int to) {
+        List<Task> tasks = new ArrayList<>();
+        if (from == to) {
+            return tasks;
+        }
+
+        CharBuffer chars = StandardCharsets.UTF_8.decode(content.slice(from, to - from));
+        CsvCodec codec = new CsvCodec();
+        codec.reset(chars);
+        while (codec.nextRecord()) {
+            tasks.add(codec.readTask(0));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,111 @@
+package kanban.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import kanban.model.Task;
+
+// История просмотров, разделенная по клиентам, с вытеснением давно не используемых историй
+public class PartitionedHistoryManager implements HistoryManager {
+    private static final String SHARED_CLIENT_ID = "";
+    private final int partitionCapacity;
+    private final int maxPartitions;
+    // Порядок доступа: первой идет история, к которой дольше всех не обращались
+    private final Map<String, HistoryManager> partitions;
+
+    // partitionCapacity - емкость истории одного клиента, memoryBudget - бюджет памяти всех историй в байтах
+    public PartitionedHistoryManager(int partitionCapacity, long memoryBudget) {
+        long partitionFootprint = InMemoryHistoryManager.estimateFootprint(partitionCapacity);
+        if (memoryBudget < partitionFootprint) {
+            throw new IllegalArgumentException(String.format(
+                    "Бюджет памяти %d байт меньше объема одной истории (%d байт)", memoryBudget, partitionFootprint));
+        }
+
+        this.partitionCapacity = partitionCapacity;
+        this.maxPartitions = (int) Math.min(Integer.MAX_VALUE, memoryBudget / partitionFootprint);
+        this.partitions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HistoryManager> eldest) {
+                return size() > maxPartitions;
+            }
+        };
+    }
+
+    @Override
+    public void add(Task task) {
+        add(SHARED_CLIENT_ID, task);
+    }
+
+    @Override
+    public void add(String clientId, Task task) {
+        partitions.computeIfAbsent(getPartitionKey(clientId), key -> new InMemoryHistoryManager(partitionCapacity))
+                .add(task);
+    }
+
+    // Удаленная задача убирается из историй всех клиентов
+    @Override
+    public void remove(Long id) {
+        partitions.values().forEach(partition -> partition.remove(id));
+    }
+
+    @Override
+    public void removeAll(Collection<Long> ids) {
+        partitions.values().forEach(partition -> partition.removeAll(ids));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return getHistory(SHARED_CLIENT_ID);
+    }
+
+    @Override
+    public List<Task> getHistory(String clientId) {
+        HistoryManager partition = partitions.get(getPartitionKey(clientId));
+        return partition == null ? new ArrayList<>() : partition.getHistory();
+    }
+
+    // Клиенты в порядке доступа к их историям, общая история - null
+    @Override
+    public Set<String> getClientIds() {
+        Set<String> clientIds = new LinkedHashSet<>();
+        partitions.keySet().forEach(key -> clientIds.add(SHARED_CLIENT_ID.equals(key) ? null : key));
+        return clientIds;
+    }
+
+    @Override
+    public Iterator<Task> descendingIterator() {
+        return descendingIterator(SHARED_CLIENT_ID);
+    }
+
+    @Override
+    public Iterator<Task> descendingIterator(String clientId) {
+        HistoryManager partition = partitions.get(getPartitionKey(clientId));
+        return partition == null ? Collections.emptyIterator() : partition.descendingIterator();
+    }
+
+    @Override
+    public HistoryPage getHistoryPage(String clientId, long cursor, int limit) {
+        HistoryManager partition = partitions.get(getPartitionKey(clientId));
+        return partition == null ? new HistoryPage(new ArrayList<>(), null)
+                : partition.getHistoryPage(clientId, cursor, limit);
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    public int getMaxPartitions() {
+        return maxPartitions;
+    }
+
+    private String getPartitionKey(String clientId) {
+        return clientId == null ? SHARED_CLIENT_ID : clientId;
+    }
+}
@@ -0,0 +1,31 @@
+package kanban.manager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import kanban.model.Task;
+
+public interface ScheduleIndex {
+    // Добавить задачу в индекс или обновить ее интервал
+    void add(Task task);
+
+    // Добавить задачи, упорядоченные по (startTime, id), например при загрузке из файла
+    default void addAll(List<? extends Task> sortedTasks) {
+        sortedTasks.forEach(this::add);
+    }
+
+    // Удалить задачу из индекса
+    void remove(Long id);
+
+    // Очистить индекс
+    void clear();
+
+    // Проверить, пересекается ли интервал [start, end) с какой-либо задачей, кроме задачи excludedId
+    default boolean hasOverlap(LocalDateTime start, LocalDateTime end, Long excludedId) {
+        return hasOverlapExcluding(start, end, excludedId == null ? Set.of() : Set.of(excludedId));
+    }
+
+    // Проверить, пересекается ли интервал [start, end) с какой-либо задачей, кроме задач excludedIds
+    boolean hasOverlapExcluding(LocalDateTime start, LocalDateTime end, Set<Long> excludedIds);
+}
@@ -0,0 +1,9 @@
+package kanban.manager;
+
+// Формат файла данных FileBackedTaskManager. Загрузка определяет формат по содержимому файла
+public enum SnapshotFormat {
+    // Текстовый CSV: строка на задачу
+    CSV,
+    // Компактный двоичный формат BinarySnapshot
+    BINARY
+}
@@ -0,0 +1,11 @@
+package kanban.manager;
+
+// Способ сохранения изменений FileBackedTaskManager
+public enum StorageMode {
+    // Каждое изменение перезаписывает файл данных целиком
+    SNAPSHOT,
+    // Каждое изменение дописывается в журнал, файл данных перезаписывается периодически
+    JOURNAL,
+    // Файл данных состоит из страниц, каждое изменение перезаписывает только страницы измененных задач
+    PAGED
+}
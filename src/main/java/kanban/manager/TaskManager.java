@@ -1,6 +1,9 @@
 package kanban.manager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import kanban.model.Epic;
@@ -17,6 +20,10 @@ public interface TaskManager {
     // Создать подзадачу
     Long createSubTask(SubTask subTask);
 
+    // Создать задачи, эпики и подзадачи одним пакетом. Пакет проверяется целиком до изменений:
+    // при ошибке не создается ни одна задача. Возвращает id в порядке задач пакета
+    List<Long> createAll(Collection<? extends Task> tasks);
+
     // Удалить все задачи
     void deleteAllTasks();
 
@@ -35,6 +42,15 @@ public interface TaskManager {
     // Получить подзадачу по идентификатору
     SubTask getSubTaskById(Long id);
 
+    // Получить задачу по идентификатору. Просмотр записывается в историю клиента clientId
+    Task getTaskById(Long id, String clientId);
+
+    // Получить эпик по идентификатору. Просмотр записывается в историю клиента clientId
+    Epic getEpicById(Long id, String clientId);
+
+    // Получить подзадачу по идентификатору. Просмотр записывается в историю клиента clientId
+    SubTask getSubTaskById(Long id, String clientId);
+
     // Удалить задачу по идентификатору
     void deleteTaskById(Long id);
 
@@ -53,6 +69,9 @@ public interface TaskManager {
     // Обновить позадачу
     void updateSubTask(SubTask subTask);
 
+    // Обновить задачи, эпики и подзадачи одним пакетом. При ошибке не обновляется ни одна задача
+    void updateAll(Collection<? extends Task> tasks);
+
     // Получить список задач
     ArrayList<Task> getTaskList();
 
@@ -68,6 +87,22 @@ public interface TaskManager {
     // Получить историю просмотров задач
     List<Task> getHistory();
 
+    // Получить историю просмотров клиента clientId
+    List<Task> getHistory(String clientId);
+
+    // Получить страницу истории клиента clientId: не более limit просмотров старше просмотра с номером cursor,
+    // самые свежие первыми
+    HistoryPage getHistoryPage(String clientId, long cursor, int limit);
+
     // Получить задачи отсортированные по приоритету
     List<Task> getPrioritizedTasks();
+
+    // Получить задачи отсортированные по приоритету, которые выполняются в промежутке [from, to).
+    // Пустая граница означает отсутствие ограничения с этой стороны
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    // Найти самое раннее свободное время начала для задачи длительностью duration,
+    // которая начнется не раньше notBefore и закончится не позже notAfter.
+    // Отрицательная длительность отклоняется с IllegalArgumentException
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter);
 }
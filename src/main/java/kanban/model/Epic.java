@@ -4,12 +4,18 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Objects;
 
 public class Epic extends Task {
     private static final TaskType TASK_TYPE = TaskType.EPIC;
     private final ArrayList<SubTask> subTaskList = new ArrayList<>();
+    // Время начала и длительность эпика хранятся в полях Task, время окончания - здесь.
+    // Все три значения пересчитываются при изменении подзадач, а не при каждом чтении
+    private LocalDateTime endTime;
+    // Количество подзадач в каждом статусе, по ним статус эпика определяется за O(1)
+    private transient int newSubTaskCount;
+    private transient int inProgressSubTaskCount;
+    private transient int doneSubTaskCount;
 
     public Epic(Long id, String name, String description) {
         super(id, name, description, TaskStatus.NEW);
@@ -19,6 +25,16 @@ public class Epic extends Task {
         super(name, description, TaskStatus.NEW);
     }
 
+    // Копия эпика вместе с копиями подзадач
+    public Epic(Epic epic) {
+        super(epic);
+        epic.subTaskList.forEach(subTask -> subTaskList.add(new SubTask(subTask)));
+        this.endTime = epic.endTime;
+        this.newSubTaskCount = epic.newSubTaskCount;
+        this.inProgressSubTaskCount = epic.inProgressSubTaskCount;
+        this.doneSubTaskCount = epic.doneSubTaskCount;
+    }
+
     public ArrayList<SubTask> getSubTaskList() {
         return subTaskList;
     }
@@ -29,28 +45,111 @@ public class Epic extends Task {
     }
 
     @Override
-    public LocalDateTime getStartTime() {
-        return getSubTaskList().stream()
-                .map(SubTask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(Comparator.naturalOrder())
-                .orElse(null);
+    public LocalDateTime getEndTime() {
+        return endTime;
     }
 
-    @Override
-    public Duration getDuration() {
-        return getSubTaskList().stream()
-                .map(SubTask::getDuration)
-                .reduce(Duration.ZERO, Duration::plus);
+    // Получить количество подзадач эпика в статусе status
+    public int getSubTaskCount(TaskStatus status) {
+        if (status == null) {
+            return 0;
+        }
+
+        switch (status) {
+            case NEW:
+                return newSubTaskCount;
+            case IN_PROGRESS:
+                return inProgressSubTaskCount;
+            default:
+                return doneSubTaskCount;
+        }
     }
 
-    @Override
-    public LocalDateTime getEndTime() {
-        return getSubTaskList().stream()
-                .map(SubTask::getStartTime)
-                .filter(Objects::nonNull)
-                .max(Comparator.naturalOrder())
-                .orElse(null);
+    // Добавить подзадачу в эпик
+    public void addSubTask(SubTask subTask) {
+        subTaskList.add(subTask);
+        countSubTask(subTask.getStatus(), 1);
+        setDuration(getDuration().plus(subTask.getDuration()));
+        includeTime(subTask.getStartTime(), subTask.getEndTime());
+    }
+
+    // Удалить подзадачу из эпика. Передаются статус и время, с которыми подзадача была учтена в эпике
+    public void removeSubTask(SubTask subTask, TaskStatus status, LocalDateTime startTime, Duration duration) {
+        if (!subTaskList.remove(subTask)) {
+            return;
+        }
+
+        countSubTask(status, -1);
+        setDuration(getDuration().minus(duration));
+        if (startTime != null) {
+            excludeTime(startTime, startTime.plus(duration));
+        }
+    }
+
+    // Удалить все подзадачи эпика
+    public void clearSubTasks() {
+        subTaskList.clear();
+        newSubTaskCount = 0;
+        inProgressSubTaskCount = 0;
+        doneSubTaskCount = 0;
+        setStartTime(null);
+        setDuration(Duration.ZERO);
+        endTime = null;
+    }
+
+    // Учесть изменение подзадачи, которая уже входит в эпик. Передаются прежние статус и время подзадачи
+    public void updateSubTask(SubTask subTask, TaskStatus oldStatus, LocalDateTime oldStartTime, Duration oldDuration) {
+        countSubTask(oldStatus, -1);
+        countSubTask(subTask.getStatus(), 1);
+        setDuration(getDuration().minus(oldDuration).plus(subTask.getDuration()));
+
+        if (oldStartTime != null) {
+            excludeTime(oldStartTime, oldStartTime.plus(oldDuration));
+        }
+        includeTime(subTask.getStartTime(), subTask.getEndTime());
+    }
+
+    private void countSubTask(TaskStatus status, int delta) {
+        if (status == null) {
+            return;
+        }
+
+        switch (status) {
+            case NEW:
+                newSubTaskCount += delta;
+                break;
+            case IN_PROGRESS:
+                inProgressSubTaskCount += delta;
+                break;
+            default:
+                doneSubTaskCount += delta;
+        }
+    }
+
+    private void includeTime(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null) {
+            return;
+        }
+
+        if (getStartTime() == null || startTime.isBefore(getStartTime())) {
+            setStartTime(startTime);
+        }
+        if (this.endTime == null || endTime.isAfter(this.endTime)) {
+            this.endTime = endTime;
+        }
+    }
+
+    // Пересчитываем границы по всем подзадачам, только если удаляется крайнее значение
+    private void excludeTime(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null) {
+            return;
+        }
+
+        if (startTime.equals(getStartTime()) || endTime.equals(this.endTime)) {
+            setStartTime(null);
+            this.endTime = null;
+            subTaskList.forEach(subTask -> includeTime(subTask.getStartTime(), subTask.getEndTime()));
+        }
     }
 
     @Override
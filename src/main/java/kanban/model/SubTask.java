@@ -30,6 +30,11 @@ public class SubTask extends Task {
         this.epicId = epicId;
     }
 
+    public SubTask(SubTask subTask) {
+        super(subTask);
+        this.epicId = subTask.epicId;
+    }
+
     public Long getEpicId() {
         return epicId;
     }
@@ -41,6 +41,11 @@ public class Task {
         this.duration = duration;
     }
 
+    // Копия задачи: ее изменение не затрагивает исходную задачу
+    public Task(Task task) {
+        this(task.id, task.name, task.description, task.status, task.startTime, task.duration);
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,12 +1,21 @@
 package kanban.server;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
+import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 
 public class BaseHttpHandler {
+    // Заголовок, по которому история просмотров разделяется между клиентами
+    protected static final String CLIENT_ID_HEADER = "X-Client-Id";
     protected void sendSuccess(HttpExchange h, String text) throws IOException {
         byte[] resp = text.getBytes(StandardCharsets.UTF_8);
         h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
@@ -15,6 +24,16 @@ public class BaseHttpHandler {
         h.close();
     }
 
+    // JSON пишется сразу в тело ответа без промежуточной строки. Длина заранее неизвестна - ответ идет частями
+    protected void sendSuccess(HttpExchange h, Object body, Gson gson) throws IOException {
+        h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        h.sendResponseHeaders(200, 0);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8))) {
+            gson.toJson(body, writer);
+        }
+        h.close();
+    }
+
     protected void sendSuccess(HttpExchange h) throws IOException {
         h.sendResponseHeaders(201, 0);
         h.close();
@@ -44,4 +63,26 @@ public class BaseHttpHandler {
         InputStream bodyInputStream = h.getRequestBody();
         return new String(bodyInputStream.readAllBytes(), StandardCharsets.UTF_8);
     }
+
+    // Идентификатор клиента из заголовка запроса или null, если заголовка нет
+    protected String getClientId(HttpExchange h) {
+        String clientId = h.getRequestHeaders().getFirst(CLIENT_ID_HEADER);
+        return clientId == null || clientId.isBlank() ? null : clientId.trim();
+    }
+
+    protected Map<String, String> getQueryParameters(HttpExchange h) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = h.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            String value = keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "";
+            parameters.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8), value);
+        }
+
+        return parameters;
+    }
 }
@@ -93,7 +93,7 @@ public class EpicHandler extends BaseHttpHandler implements HttpHandler {
 
     private void handleGetEpicById(HttpExchange exchange, long epicId) throws IOException {
         Gson gson = HttpTaskServer.getGson();
-        String response = gson.toJson(taskManager.getEpicById(epicId));
+        String response = gson.toJson(taskManager.getEpicById(epicId, getClientId(exchange)));
         sendSuccess(exchange, response);
     }
 
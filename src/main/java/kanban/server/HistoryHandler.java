@@ -1,26 +1,60 @@
 package kanban.server;
 
 import java.io.IOException;
+import java.util.Map;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import kanban.HttpTaskServer;
+import kanban.manager.HistoryPage;
 import kanban.manager.TaskManager;
 
 public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
+    // Заголовок ответа с курсором следующей страницы истории. Его нет, если страница последняя
+    protected static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final TaskManager taskManager;
 
     public HistoryHandler(TaskManager taskManager) {
         this.taskManager = taskManager;
     }
 
+    // Без параметра limit возвращается вся история от старых просмотров к новым.
+    // С ним - страница ?limit=&cursor= от новых просмотров к старым, cursor - значение из X-Next-Cursor.
+    // Курсор - номер последнего отданного просмотра, новые просмотры не сдвигают следующие страницы
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        Integer limit;
+        long cursor;
+
+        try {
+            Map<String, String> parameters = getQueryParameters(exchange);
+            limit = parameters.containsKey("limit") ? Integer.valueOf(parameters.get("limit")) : null;
+            cursor = parameters.containsKey("cursor") ? Long.parseLong(parameters.get("cursor"))
+                    : HistoryPage.FIRST_CURSOR;
+            if ((limit != null && limit < 0) || cursor <= 0) {
+                throw new NumberFormatException();
+            }
+        } catch (IllegalArgumentException e) {
+            // Число в неверном формате или некорректная %-последовательность в параметрах
+            sendError(exchange, "Некорректные параметры страницы истории", 400);
+            return;
+        }
+
         try {
             Gson gson = HttpTaskServer.getGson();
-            String response = gson.toJson(taskManager.getHistory());
-            sendSuccess(exchange, response);
+            String clientId = getClientId(exchange);
+
+            if (limit == null) {
+                sendSuccess(exchange, taskManager.getHistory(clientId), gson);
+                return;
+            }
+
+            HistoryPage page = taskManager.getHistoryPage(clientId, cursor, limit);
+            if (page.getNextCursor() != null) {
+                exchange.getResponseHeaders().add(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+            }
+            sendSuccess(exchange, page.getTasks(), gson);
         } catch (Exception e) {
             sendInternalServerError(exchange, e.getMessage());
         }
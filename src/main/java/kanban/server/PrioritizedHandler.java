@@ -1,6 +1,12 @@
 package kanban.server;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
@@ -17,12 +23,104 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        String requestPath = exchange.getRequestURI().getPath();
+        Endpoint endpoint = getEndpoint(requestPath, exchange.getRequestMethod());
+        LocalDateTime from;
+        LocalDateTime to;
+        Duration duration = null;
+
+        try {
+            Map<String, String> parameters = getQueryParameters(exchange);
+            from = parseDateTime(parameters.get("from"));
+            to = parseDateTime(parameters.get("to"));
+
+            if (Endpoint.GET_FREE_SLOT.equals(endpoint)) {
+                duration = Duration.ofMinutes(Long.parseLong(parameters.get("duration")));
+                if (duration.isNegative()) {
+                    throw new NumberFormatException();
+                }
+            }
+        } catch (DateTimeParseException e) {
+            sendError(exchange, "Некорректный формат даты и времени", 400);
+            return;
+        } catch (NumberFormatException e) {
+            sendError(exchange, "Некорректная длительность задачи", 400);
+            return;
+        } catch (IllegalArgumentException e) {
+            // Например, некорректная %-последовательность в параметрах
+            sendError(exchange, "Некорректные параметры запроса", 400);
+            return;
+        }
+
         try {
-            Gson gson = HttpTaskServer.getGson();
-            String response = gson.toJson(taskManager.getPrioritizedTasks());
-            sendSuccess(exchange, response);
+            switch (endpoint) {
+                case GET_PRIORITIZED:
+                    handleGetPrioritized(exchange, from, to);
+                    break;
+                case GET_FREE_SLOT:
+                    handleGetFreeSlot(exchange, duration, from, to);
+                    break;
+                default:
+                    sendNotFound(exchange, "Такого эндпоинта не существует");
+            }
+        } catch (NoSuchElementException e) {
+            // 404
+            sendNotFound(exchange, e.getMessage());
         } catch (Exception e) {
+            // 500
             sendInternalServerError(exchange, e.getMessage());
         }
     }
+
+    private Endpoint getEndpoint(String requestPath, String requestMethod) {
+        String[] pathParts = requestPath.split("/");
+
+        if (requestMethod.equals("GET")) {
+            if (pathParts.length == 2) {
+                return Endpoint.GET_PRIORITIZED;
+            }
+            if (pathParts.length == 3 && pathParts[2].equals("free-slot")) {
+                return Endpoint.GET_FREE_SLOT;
+            }
+        }
+
+        return Endpoint.UNKNOWN;
+    }
+
+    private void handleGetPrioritized(HttpExchange exchange, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        Gson gson = HttpTaskServer.getGson();
+        String response;
+        if (from == null && to == null) {
+            response = gson.toJson(taskManager.getPrioritizedTasks());
+        } else {
+            response = gson.toJson(taskManager.getPrioritizedTasks(from, to));
+        }
+        sendSuccess(exchange, response);
+    }
+
+    private void handleGetFreeSlot(HttpExchange exchange, Duration duration, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        Gson gson = HttpTaskServer.getGson();
+        LocalDateTime startTime = taskManager.findFreeSlot(duration, from, to);
+
+        Map<String, Object> slot = new LinkedHashMap<>();
+        slot.put("startTime", startTime);
+        slot.put("endTime", startTime.plus(duration));
+        slot.put("duration", duration);
+        sendSuccess(exchange, gson.toJson(slot));
+    }
+
+    private LocalDateTime parseDateTime(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    private enum Endpoint {
+        GET_PRIORITIZED,
+        GET_FREE_SLOT,
+        UNKNOWN
+    }
 }
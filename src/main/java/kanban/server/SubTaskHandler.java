@@ -93,7 +93,7 @@ public class SubTaskHandler extends BaseHttpHandler implements HttpHandler {
 
     private void handleGetSubTaskById(HttpExchange exchange, long subTaskId) throws IOException {
         Gson gson = HttpTaskServer.getGson();
-        String response = gson.toJson(taskManager.getSubTaskById(subTaskId));
+        String response = gson.toJson(taskManager.getSubTaskById(subTaskId, getClientId(exchange)));
         sendSuccess(exchange, response);
     }
 
@@ -93,7 +93,7 @@ public class TasksHandler extends BaseHttpHandler implements HttpHandler {
 
     private void handleGetTaskById(HttpExchange exchange, long taskId) throws IOException {
         Gson gson = HttpTaskServer.getGson();
-        String response = gson.toJson(taskManager.getTaskById(taskId));
+        String response = gson.toJson(taskManager.getTaskById(taskId, getClientId(exchange)));
         sendSuccess(exchange, response);
     }
 
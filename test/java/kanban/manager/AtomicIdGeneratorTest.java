@@ -0,0 +1,75 @@
+package kanban.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AtomicIdGeneratorTest {
+
+    @Test
+    void idsInOneThreadAreSequential() {
+        IdGenerator idGenerator = new AtomicIdGenerator(4);
+
+        for (long id = 1; id <= 10; id++) {
+            assertEquals(id, idGenerator.nextId());
+        }
+    }
+
+    @Test
+    void reservedIdsAreSkipped() {
+        IdGenerator idGenerator = new AtomicIdGenerator(4);
+        assertEquals(1L, idGenerator.nextId());
+
+        // Зарезервированный id внутри уже выданного блока
+        idGenerator.reserve(2L);
+        assertEquals(3L, idGenerator.nextId());
+
+        idGenerator.reserve(100L);
+        assertEquals(101L, idGenerator.nextId());
+
+        // Меньший id не откатывает счетчик
+        idGenerator.reserve(50L);
+        assertEquals(102L, idGenerator.nextId());
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator idGenerator = new AtomicIdGenerator(8);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        assertTrue(ids.add(idGenerator.nextId()));
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(4000, ids.size());
+    }
+
+    @Test
+    void invalidBlockSize() {
+        assertThrows(IllegalArgumentException.class, () -> new AtomicIdGenerator(0));
+    }
+}
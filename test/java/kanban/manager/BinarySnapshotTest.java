@@ -0,0 +1,74 @@
+package kanban.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.DONE;
+import static kanban.model.TaskStatus.IN_PROGRESS;
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinarySnapshotTest {
+
+    @Test
+    void encodeAndDecode() {
+        Epic epic = new Epic(300L, "Эпик, с запятой", null);
+        List<Task> tasks = List.of(
+                new Task(1L, "Задача", "Описание", IN_PROGRESS,
+                        LocalDateTime.of(2024, 3, 1, 9, 15), Duration.ofMinutes(45)),
+                new Task(2L, "Задача", "Описание", NEW,
+                        LocalDateTime.of(1969, 12, 31, 23, 59, 30, 500), Duration.ZERO),
+                epic,
+                new SubTask(100_000L, "Подзадача\nв две строки", "", DONE, epic.getId(),
+                        LocalDateTime.of(2024, 3, 1, 10, 0), Duration.ofMinutes(30)),
+                new SubTask(100_001L, "Подзадача без времени", "Описание", NEW, epic.getId()));
+
+        List<Task> decoded = BinarySnapshot.decode(ByteBuffer.wrap(BinarySnapshot.encode(tasks)));
+
+        assertEquals(tasks, decoded);
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getTaskType(), decoded.get(i).getTaskType());
+            assertEquals(tasks.get(i).getName(), decoded.get(i).getName());
+            assertEquals(tasks.get(i).getDescription(), decoded.get(i).getDescription());
+            assertEquals(tasks.get(i).getStartTime(), decoded.get(i).getStartTime());
+            assertEquals(tasks.get(i).getDuration(), decoded.get(i).getDuration());
+        }
+        assertEquals(epic.getId(), ((SubTask) decoded.getLast()).getEpicId());
+    }
+
+    @Test
+    void repeatedStringsAreStoredOnce() {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            tasks.add(new Task(id, "Ежедневный созвон", "Обсуждение задач команды", NEW,
+                    LocalDateTime.of(2024, 1, 1, 10, 0).plusDays(id), Duration.ofMinutes(15)));
+        }
+
+        byte[] snapshot = BinarySnapshot.encode(tasks);
+        assertTrue(snapshot.length < tasks.size() * 16, "Строки не вынесены в таблицу");
+        assertEquals(tasks, BinarySnapshot.decode(ByteBuffer.wrap(snapshot)));
+    }
+
+    @Test
+    void rejectsOtherFormats() {
+        ByteBuffer csv = ByteBuffer.wrap("id,type,name".getBytes(StandardCharsets.UTF_8));
+        assertFalse(BinarySnapshot.isBinarySnapshot(csv));
+        assertThrows(IllegalArgumentException.class, () -> BinarySnapshot.decode(csv));
+
+        byte[] snapshot = BinarySnapshot.encode(List.of());
+        snapshot[4] = 99;
+        assertThrows(IllegalArgumentException.class, () -> BinarySnapshot.decode(ByteBuffer.wrap(snapshot)));
+    }
+}
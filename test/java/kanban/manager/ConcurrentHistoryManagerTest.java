@@ -0,0 +1,83 @@
+package kanban.manager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrentHistoryManagerTest {
+    private ConcurrentHistoryManager historyManager;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = new ConcurrentHistoryManager(new InMemoryHistoryManager());
+    }
+
+    private Task createTask(Long id) {
+        return new Task(id, "Test task " + id, "Test task description", NEW);
+    }
+
+    @Test
+    void addAndGetHistoryInViewOrder() {
+        Task task1 = createTask(1L);
+        Task task2 = createTask(2L);
+        Task task3 = createTask(3L);
+        historyManager.add(task1);
+        historyManager.add(task2);
+        historyManager.add(task3);
+        historyManager.add(task1);
+
+        assertEquals(List.of(task2, task3, task1), historyManager.getHistory());
+
+        historyManager.remove(3L);
+        assertEquals(List.of(task2, task1), historyManager.getHistory());
+    }
+
+    @Test
+    void viewsBeyondDrainThreshold() {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            Task task = createTask(id);
+            tasks.add(task);
+            historyManager.add(task);
+        }
+
+        assertEquals(tasks, historyManager.getHistory());
+    }
+
+    @Test
+    void concurrentViews() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (long id = 1; id <= 500; id++) {
+                        historyManager.add(createTask(id));
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Каждая задача в истории один раз
+        List<Task> history = historyManager.getHistory();
+        assertEquals(500, history.size());
+        assertEquals(500, new HashSet<>(history).size());
+    }
+}
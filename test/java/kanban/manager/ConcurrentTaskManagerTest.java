@@ -0,0 +1,254 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.DONE;
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREAD_COUNT = 8;
+    private static final int TASKS_PER_THREAD = 200;
+
+    @BeforeEach
+    void setUp() {
+        taskManager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    void clientHistoriesAreSeparate() {
+        Long taskId = taskManager.createTask(new Task("Test task", "Test task description", NEW));
+        Long epicId = taskManager.createEpic(new Epic("Test epic", "Test epic description"));
+
+        taskManager.getTaskById(taskId, "alice");
+        taskManager.getEpicById(epicId, "bob");
+        taskManager.getTaskById(taskId, "bob");
+
+        assertEquals(List.of(taskId), taskManager.getHistory("alice").stream().map(Task::getId).toList());
+        assertEquals(List.of(epicId, taskId), taskManager.getHistory("bob").stream().map(Task::getId).toList());
+        assertEquals(List.of(), taskManager.getHistory("carol"));
+        assertEquals(List.of(), taskManager.getHistory());
+    }
+
+    @Test
+    void concurrentCreateAndRead() throws Exception {
+        // История клиента вмещает все просмотры теста
+        int historyCapacity = THREAD_COUNT * TASKS_PER_THREAD + 1;
+        taskManager = new ConcurrentTaskManager(Managers.getPartitionedHistory(historyCapacity,
+                InMemoryHistoryManager.estimateFootprint(historyCapacity)));
+        final Long epicId = taskManager.createEpic(new Epic("Test epic", "Test epic description"));
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < THREAD_COUNT; thread++) {
+                final int threadNumber = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                        // У каждой задачи свой интервал, пересечений нет
+                        LocalDateTime startTime = start.plusMinutes(10L * (threadNumber * TASKS_PER_THREAD + i));
+                        Long id;
+                        if (i % 2 == 0) {
+                            id = taskManager.createTask(new Task("Test task", "Test task description", NEW,
+                                    startTime, Duration.ofMinutes(10)));
+                            taskManager.getTaskById(id);
+                        } else {
+                            id = taskManager.createSubTask(new SubTask("Test subTask", "Test subTask description",
+                                    DONE, epicId, startTime, Duration.ofMinutes(10)));
+                            taskManager.getSubTaskById(id);
+                        }
+                        taskManager.getTaskList();
+                        taskManager.getSubTaskListByEpicId(epicId);
+                        taskManager.getPrioritizedTasks(startTime.minusHours(1), startTime);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int total = THREAD_COUNT * TASKS_PER_THREAD;
+        assertEquals(total / 2, taskManager.getTaskList().size());
+        assertEquals(total / 2, taskManager.getSubTaskListByEpicId(epicId).size());
+        assertEquals(DONE, taskManager.getEpicById(epicId).getStatus());
+        assertEquals(total, taskManager.getHistory().size() - 1);
+
+        // id выданы без повторов, расписание упорядочено
+        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        assertEquals(total, prioritizedTasks.stream().map(Task::getId).distinct().count());
+        for (int i = 1; i < prioritizedTasks.size(); i++) {
+            assertTrue(prioritizedTasks.get(i - 1).getStartTime().isBefore(prioritizedTasks.get(i).getStartTime()));
+        }
+    }
+
+    @Test
+    void concurrentSubTaskChangesInDifferentEpics() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 0, 0);
+        List<Long> epicIds = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            epicIds.add(taskManager.createEpic(new Epic("Test epic", "Test epic description")));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < THREAD_COUNT; thread++) {
+                final int threadNumber = thread;
+                futures.add(executor.submit(() -> {
+                    Long epicId = epicIds.get(threadNumber);
+                    Long nextEpicId = epicIds.get((threadNumber + 1) % THREAD_COUNT);
+                    for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                        // Четные подзадачи с временем начала, нечетные - без
+                        SubTask subTask = i % 2 == 0
+                                ? new SubTask("Test subTask", "Test subTask description", NEW, epicId,
+                                        start.plusMinutes(10L * (threadNumber * TASKS_PER_THREAD + i)),
+                                        Duration.ofMinutes(10))
+                                : new SubTask("Test subTask", "Test subTask description", NEW, epicId);
+                        Long id = taskManager.createSubTask(subTask);
+
+                        SubTask updated = new SubTask(id, "Updated", "Updated", DONE, epicId,
+                                subTask.getStartTime(), subTask.getDuration());
+                        taskManager.updateSubTask(updated);
+
+                        // Каждую четвертую подзадачу переносим в эпик соседнего потока, каждую восьмую удаляем
+                        if (i % 4 == 1) {
+                            taskManager.updateSubTask(new SubTask(id, "Moved", "Moved", DONE, nextEpicId,
+                                    subTask.getStartTime(), subTask.getDuration()));
+                        } else if (i % 8 == 2) {
+                            taskManager.deleteSubTaskById(id);
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int total = THREAD_COUNT * TASKS_PER_THREAD;
+        int deleted = THREAD_COUNT * (TASKS_PER_THREAD / 8);
+        assertEquals(total - deleted, taskManager.getSubTaskList().size());
+        assertEquals(total / 2 - deleted, taskManager.getPrioritizedTasks().size());
+
+        int linkedSubTasks = 0;
+        for (Long epicId : epicIds) {
+            List<SubTask> subTasks = taskManager.getSubTaskListByEpicId(epicId);
+            linkedSubTasks += subTasks.size();
+            assertEquals(TASKS_PER_THREAD - TASKS_PER_THREAD / 8, subTasks.size());
+            for (SubTask subTask : subTasks) {
+                assertEquals(epicId, subTask.getEpicId());
+            }
+            assertEquals(DONE, taskManager.getEpicById(epicId).getStatus());
+            assertEquals(subTasks.size(), taskManager.getEpicById(epicId).getSubTaskCount(DONE));
+        }
+        assertEquals(total - deleted, linkedSubTasks);
+    }
+
+    @Test
+    void deletedTasksDoNotReturnToHistory() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT * TASKS_PER_THREAD; i++) {
+            ids.add(taskManager.createTask(new Task("Test task", "Test task description", NEW)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        AtomicBoolean deleting = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            // Просмотры идут одновременно с удалением тех же задач
+            for (int thread = 1; thread < THREAD_COUNT; thread++) {
+                final int threadNumber = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = threadNumber; deleting.get(); i = (i + 1) % ids.size()) {
+                        try {
+                            taskManager.getTaskById(ids.get(i), "client-" + threadNumber);
+                        } catch (NoSuchElementException ignored) {
+                            // Задача уже удалена
+                        }
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                ids.forEach(taskManager::deleteTaskById);
+                deleting.set(false);
+            }));
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void epicsAreReadAsConsistentCopies() throws Exception {
+        final Long epicId = taskManager.createEpic(new Epic("Test epic", "Test epic description"));
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            // Подзадачи эпика добавляются и удаляются, пока другие потоки читают эпик
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < TASKS_PER_THREAD * THREAD_COUNT; i++) {
+                    Long subTaskId = taskManager.createSubTask(
+                            new SubTask("Test subtask", "Test subtask description", NEW, epicId));
+                    if (i % 2 == 0) {
+                        taskManager.deleteSubTaskById(subTaskId);
+                    }
+                }
+                writing.set(false);
+            }));
+            for (int thread = 1; thread < THREAD_COUNT; thread++) {
+                futures.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        Epic epic = taskManager.getEpicById(epicId);
+                        int subTaskCount = 0;
+                        for (SubTask ignored : epic.getSubTaskList()) {
+                            subTaskCount++;
+                        }
+                        assertEquals(epic.getSubTaskCount(NEW), subTaskCount);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Изменение полученного эпика не затрагивает эпик в менеджере
+        Epic epic = taskManager.getEpicById(epicId);
+        epic.getSubTaskList().clear();
+        assertEquals(TASKS_PER_THREAD * THREAD_COUNT / 2, taskManager.getEpicById(epicId).getSubTaskList().size());
+    }
+}
@@ -0,0 +1,93 @@
+package kanban.manager;
+
+import java.nio.CharBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import kanban.model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.DONE;
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvCodecTest {
+    private final CsvCodec codec = new CsvCodec();
+
+    private List<Task> decode(String csv) {
+        codec.reset(CharBuffer.wrap(csv));
+        List<Task> tasks = new ArrayList<>();
+        while (codec.nextRecord()) {
+            tasks.add(codec.readTask(0));
+        }
+        return tasks;
+    }
+
+    @Test
+    void specialCharactersAreQuoted() {
+        Task task = new Task(1L, "Купить молоко, хлеб", "Сказать \"спасибо\"\nи уйти", NEW,
+                LocalDateTime.of(2024, 3, 1, 9, 15, 30), Duration.ofMinutes(45));
+
+        assertEquals("1,TASK,\"Купить молоко, хлеб\",NEW,\"Сказать \"\"спасибо\"\"\nи уйти\","
+                + "2024-03-01T09:15:30,45,", codec.encode(task).toString());
+    }
+
+    @Test
+    void encodeAndDecode() {
+        Epic epic = new Epic(2L, "Эпик", null);
+        List<Task> tasks = List.of(
+                new Task(1L, "\"В кавычках\"", "", NEW, LocalDateTime.of(2024, 3, 1, 9, 15), Duration.ofMinutes(45)),
+                epic,
+                new SubTask(3L, "Подзадача\r\nв две строки", "a,b,,c", DONE, epic.getId()));
+
+        StringBuilder csv = new StringBuilder();
+        for (Task task : tasks) {
+            csv.append(codec.encode(task)).append('\n');
+        }
+        List<Task> decoded = decode(csv.toString());
+
+        assertEquals(tasks, decoded);
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getTaskType(), decoded.get(i).getTaskType());
+            assertEquals(tasks.get(i).getName(), decoded.get(i).getName());
+            assertEquals(tasks.get(i).getDescription(), decoded.get(i).getDescription());
+            assertEquals(tasks.get(i).getStartTime(), decoded.get(i).getStartTime());
+            assertEquals(tasks.get(i).getDuration(), decoded.get(i).getDuration());
+        }
+        // Пустая строка и null различаются
+        assertEquals("", decoded.getFirst().getDescription());
+        assertNull(decoded.get(1).getDescription());
+        assertEquals(epic.getId(), ((SubTask) decoded.getLast()).getEpicId());
+    }
+
+    @Test
+    void recordsWithCrLfAndBlankLines() {
+        codec.reset(CharBuffer.wrap("PUT,1,TASK,Задача,NEW,,,0,\r\n\r\nDELETE,TASK,1"));
+
+        assertTrue(codec.nextRecord());
+        assertEquals(9, codec.fieldCount());
+        assertEquals("Задача", codec.readTask(1).getName());
+        assertTrue(codec.nextRecord());
+        assertEquals(TaskType.TASK, codec.enumValue(1, TaskType.values()));
+        assertEquals(1L, codec.longValue(2));
+        assertFalse(codec.nextRecord());
+    }
+
+    @Test
+    void invalidRecords() {
+        assertThrows(IllegalArgumentException.class, () -> decode("1,TASK,\"Без конца,NEW,,,0,"));
+        assertThrows(IllegalArgumentException.class, () -> decode("1,TASK,\"Имя\"x,NEW,,,0,"));
+        assertThrows(IllegalArgumentException.class, () -> decode("1,TASK,Имя,NEW,,,0"));
+        assertThrows(IllegalArgumentException.class, () -> decode("1,STORY,Имя,NEW,,,0,"));
+        assertThrows(NumberFormatException.class, () -> decode("один,TASK,Имя,NEW,,,0,"));
+    }
+}
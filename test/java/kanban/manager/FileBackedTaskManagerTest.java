@@ -2,7 +2,18 @@ package kanban.manager;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 
+import kanban.exception.CreateTaskException;
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import kanban.model.TaskStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -51,6 +62,206 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         assertArrayEquals(taskManager.getEpicList().toArray(), taskManager2.getEpicList().toArray());
     }
 
+    @Test
+    void createAllAndLoadFromFile() {
+        Epic epic = new Epic(1L, "Test epic", "Test epic description");
+        Task task = new Task(2L, "Test task", "Test task description", TaskStatus.NEW);
+        SubTask subTask = new SubTask(3L, "Test subTask", "Test subTask description", TaskStatus.DONE, 1L);
+        taskManager.createAll(List.of(epic, task, subTask));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(List.of(task), taskManager2.getTaskList());
+        assertEquals(List.of(subTask), taskManager2.getSubTaskList());
+        assertEquals(TaskStatus.DONE, taskManager2.getEpicById(1L).getStatus());
+    }
+
+    @Test
+    void specialCharactersSurviveReload() {
+        Task task = new Task(1L, "Купить молоко, хлеб", "Сказать \"спасибо\"\nи уйти", TaskStatus.NEW);
+        Epic epic = new Epic(2L, "Эпик", "");
+        taskManager.createAll(List.of(task, epic));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(task.getName(), taskManager2.getTaskById(1L).getName());
+        assertEquals(task.getDescription(), taskManager2.getTaskById(1L).getDescription());
+        assertEquals("", taskManager2.getEpicById(2L).getDescription());
+    }
+
+    @Test
+    void loadFromFileResumesIds() {
+        taskManager.createAll(List.of(new Epic(10L, "Test epic", "Test epic description"),
+                new Task(20L, "Test task", "Test task description", TaskStatus.NEW)));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        Long taskId = taskManager2.createTask(new Task("Test task2", "Test task2 description", TaskStatus.NEW));
+        assertEquals(21L, taskId);
+    }
+
+    @Test
+    void historyIsRestoredFromLog() throws IOException {
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        Task deletedTask = taskManager.getTaskList().getLast();
+        Epic epic = taskManager.getEpicList().getFirst();
+
+        taskManager.getTaskById(task.getId());
+        taskManager.getEpicById(epic.getId());
+        taskManager.getTaskById(deletedTask.getId());
+        taskManager.getTaskById(task.getId());
+        taskManager.deleteTaskById(deletedTask.getId());
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(List.of(epic, task), taskManager2.getHistory());
+
+        // Журнал сжат: повторный просмотр и просмотр удаленной задачи отброшены
+        Path historyLog = Path.of(testFile.getPath() + ".history");
+        assertEquals(List.of(epic.getId().toString(), task.getId().toString()), Files.readAllLines(historyLog));
+    }
+
+    @Test
+    void viewIsReturnedWhenHistoryLogFails() throws IOException {
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        // Журнал просмотров нельзя открыть: на его месте каталог
+        Path historyLog = Files.createDirectory(Path.of(testFile.getPath() + ".history"));
+
+        try {
+            assertEquals(task, taskManager.getTaskById(task.getId()));
+            assertEquals(List.of(task), taskManager.getHistory());
+        } finally {
+            Files.delete(historyLog);
+        }
+    }
+
+    @Test
+    void clientHistoryIsRestoredFromLog() {
+        taskManager = new FileBackedTaskManager(testFile, Managers.getPartitionedHistory());
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        Epic epic = taskManager.getEpicList().getFirst();
+
+        taskManager.getTaskById(task.getId(), "alice");
+        taskManager.getEpicById(epic.getId(), "bob");
+        taskManager.getTaskById(task.getId(), "bob");
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getPartitionedHistory());
+        assertEquals(List.of(task), taskManager2.getHistory("alice"));
+        assertEquals(List.of(epic, task), taskManager2.getHistory("bob"));
+    }
+
+    @Test
+    void historyLogKeepsOnlyCurrentHistory() throws IOException {
+        taskManager = new FileBackedTaskManager(testFile, Managers.getDefaultHistory(2));
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        Task secondTask = taskManager.getTaskList().getLast();
+        Epic epic = taskManager.getEpicList().getFirst();
+
+        taskManager.getTaskById(task.getId());
+        taskManager.getEpicById(epic.getId());
+        taskManager.getTaskById(secondTask.getId());
+
+        // Журнал сжимается по истории емкостью 2: первый просмотр вытеснен из нее
+        FileBackedTaskManager.loadFromFile(testFile, Managers.getDefaultHistory(2));
+        // и не возвращается даже в истории большей емкости
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(List.of(epic, secondTask), taskManager2.getHistory());
+        Path historyLog = Path.of(testFile.getPath() + ".history");
+        assertEquals(List.of(epic.getId().toString(), secondTask.getId().toString()),
+                Files.readAllLines(historyLog));
+    }
+
+    @Test
+    void unfinishedHistoryLogLineIsSkipped() throws IOException {
+        taskManager = new FileBackedTaskManager(testFile, Managers.getPartitionedHistory());
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        taskManager.getTaskById(task.getId());
+
+        // Запись оборвана на имени клиента
+        Path historyLog = Path.of(testFile.getPath() + ".history");
+        Files.writeString(historyLog, task.getId() + ",ali", StandardOpenOption.APPEND);
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getPartitionedHistory());
+        assertEquals(List.of(task), taskManager2.getHistory());
+        assertEquals(List.of(), taskManager2.getHistory("ali"));
+        assertEquals(List.of(task.getId().toString()), Files.readAllLines(historyLog));
+    }
+
+    @Test
+    void backgroundWriterWritesOnFlush() throws IOException {
+        try (FileBackedTaskManager backgroundManager = new FileBackedTaskManager(testFile,
+                Managers.getDefaultHistory(), StorageMode.SNAPSHOT, DurabilityPolicy.onShutdown().withForce())) {
+            Task task = new Task("Test task", "Test task description", TaskStatus.NEW);
+            backgroundManager.createTask(task);
+            assertEquals(0, Files.size(testFile.toPath()), "Изменение записано до flush");
+
+            backgroundManager.flush();
+            assertEquals(List.of(task), FileBackedTaskManager.loadFromFile(testFile).getTaskList());
+        }
+    }
+
+    @Test
+    void everyWritePolicyWritesBeforeReturn() {
+        try (FileBackedTaskManager backgroundManager = new FileBackedTaskManager(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL, DurabilityPolicy.everyWrite())) {
+            Epic epic = new Epic("Test epic", "Test epic description");
+            backgroundManager.createEpic(epic);
+            SubTask subTask = new SubTask("Test subTask", "Test subTask description", TaskStatus.DONE, epic.getId());
+            backgroundManager.createSubTask(subTask);
+
+            FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                    Managers.getDefaultHistory(), StorageMode.JOURNAL);
+            assertEquals(List.of(subTask), taskManager2.getSubTaskList());
+            assertEquals(TaskStatus.DONE, taskManager2.getEpicById(epic.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void binarySnapshotAndCsvExport() throws IOException {
+        taskManager = new FileBackedTaskManager(testFile, Managers.getDefaultHistory(), StorageMode.SNAPSHOT,
+                DurabilityPolicy.synchronous(), SnapshotFormat.BINARY);
+        createTestTasks();
+
+        // Загруженный менеджер продолжает писать в двоичном формате
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertArrayEquals(taskManager.getSubTaskList().toArray(), taskManager2.getSubTaskList().toArray());
+        taskManager2.deleteAllTasks();
+        assertEquals(0, FileBackedTaskManager.loadFromFile(testFile).getTaskList().size());
+
+        File csvFile = File.createTempFile(testFileName, fileExtension);
+        taskManager.exportToCsv(csvFile);
+        assertEquals(taskManager.getTaskCount() + 1, Files.readAllLines(csvFile.toPath()).size());
+        FileBackedTaskManager taskManager3 = FileBackedTaskManager.loadFromFile(csvFile);
+        assertArrayEquals(taskManager.getTaskList().toArray(), taskManager3.getTaskList().toArray());
+        assertArrayEquals(taskManager.getEpicList().toArray(), taskManager3.getEpicList().toArray());
+    }
+
+    @Test
+    void loadFromFileRestoresWithoutWriting() throws IOException {
+        Files.write(testFile.toPath(), List.of(
+                "id,type,name,status,description,startTime,duration,epic",
+                "3,SUBTASK,Подзадача,DONE,Описание,2024-09-01T12:00,30,2",
+                "1,TASK,Задача,NEW,Описание,2024-09-01T10:00,60,",
+                "4,SUBTASK,Подзадача 2,NEW,Описание,,0,2",
+                "2,EPIC,Эпик,NEW,Описание,,0,"));
+        List<String> content = Files.readAllLines(testFile.toPath());
+
+        // Подзадача раньше эпика, файл при загрузке не перезаписывается
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(content, Files.readAllLines(testFile.toPath()));
+        assertEquals(TaskStatus.IN_PROGRESS, taskManager2.getEpicById(2L).getStatus());
+        assertEquals(2, taskManager2.getSubTaskListByEpicId(2L).size());
+        assertEquals(List.of(1L, 3L), taskManager2.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        assertEquals(5L, taskManager2.createTask(new Task("Новая задача", "Описание", TaskStatus.NEW)));
+        Task overlapping = new Task("Пересечение", "Описание", TaskStatus.NEW,
+                LocalDateTime.of(2024, 9, 1, 12, 15), Duration.ofMinutes(10));
+        assertThrows(CreateTaskException.class, () -> taskManager2.createTask(overlapping));
+    }
+
     @Test
     void loadFromNonExistantFile() {
         assertThrows(RuntimeException.class, () -> FileBackedTaskManager.loadFromFile(
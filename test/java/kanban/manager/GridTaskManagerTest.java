@@ -0,0 +1,16 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+
+import org.junit.jupiter.api.BeforeEach;
+
+class GridTaskManagerTest extends TaskManagerTest<TaskManager> {
+
+    @BeforeEach
+    void setUp() {
+        taskManager = Managers.getGridTaskManager(LocalDateTime.of(2020, Month.JANUARY, 1, 0, 0),
+                Duration.ofMinutes(10), Duration.ofDays(366 * 5));
+    }
+}
@@ -0,0 +1,127 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kanban.exception.ManagerSaveException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitWriterTest {
+
+    @Test
+    void changesDuringCommitAreWrittenTogether() throws InterruptedException {
+        AtomicInteger commits = new AtomicInteger();
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+
+        try (GroupCommitWriter writer = new GroupCommitWriter("test-writer", DurabilityPolicy.everyWrite(), () -> {
+            commitStarted.countDown();
+            try {
+                releaseCommit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            commits.incrementAndGet();
+        })) {
+            writer.submit();
+            assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+
+            // Пока идет первая запись, изменения накапливаются и записываются следующей одной записью
+            writer.submit();
+            writer.submit();
+            long last = writer.submit();
+            releaseCommit.countDown();
+            writer.await(last);
+
+            assertEquals(2, commits.get());
+        }
+    }
+
+    @Test
+    void onShutdownWritesOnlyOnFlushAndClose() throws InterruptedException {
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitWriter writer = new GroupCommitWriter("test-writer", DurabilityPolicy.onShutdown(),
+                commits::incrementAndGet);
+
+        writer.submit();
+        writer.submit();
+        Thread.sleep(50);
+        assertEquals(0, commits.get());
+
+        writer.flush();
+        assertEquals(1, commits.get());
+
+        writer.submit();
+        writer.close();
+        assertEquals(2, commits.get());
+        assertThrows(ManagerSaveException.class, writer::submit);
+    }
+
+    @Test
+    void intervalPolicyWritesWithoutFlush() throws InterruptedException {
+        CountDownLatch committed = new CountDownLatch(1);
+
+        try (GroupCommitWriter writer = new GroupCommitWriter("test-writer",
+                DurabilityPolicy.every(Duration.ofMillis(20)), committed::countDown)) {
+            writer.submit();
+            assertTrue(committed.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void failedCommitIsReportedAndRetried() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        AtomicInteger commits = new AtomicInteger();
+
+        try (GroupCommitWriter writer = new GroupCommitWriter("test-writer", DurabilityPolicy.everyWrite(), () -> {
+            if (fail.get()) {
+                throw new ManagerSaveException("Диск недоступен");
+            }
+            commits.incrementAndGet();
+        })) {
+            long sequence = writer.submit();
+            assertThrows(ManagerSaveException.class, () -> writer.await(sequence));
+
+            fail.set(false);
+            writer.await(writer.submit());
+            assertEquals(1, commits.get());
+        }
+    }
+
+    @Test
+    void idleWriterThreadStops() throws InterruptedException {
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitWriter writer = new GroupCommitWriter("idle-test-writer", DurabilityPolicy.everyWrite(),
+                commits::incrementAndGet);
+        assertFalse(isThreadAlive("idle-test-writer"));
+
+        writer.await(writer.submit());
+        assertTrue(isThreadAlive("idle-test-writer"));
+
+        // Без изменений поток завершается и не удерживает незакрытый менеджер, а следующее изменение
+        // запускает его заново
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (isThreadAlive("idle-test-writer") && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(isThreadAlive("idle-test-writer"));
+
+        writer.await(writer.submit());
+        assertEquals(2, commits.get());
+        writer.close();
+        assertFalse(isThreadAlive("idle-test-writer"));
+    }
+
+    private static boolean isThreadAlive(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals(name) && thread.isAlive());
+    }
+}
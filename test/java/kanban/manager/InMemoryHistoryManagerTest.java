@@ -1,5 +1,14 @@
 package kanban.manager;
 
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
 import kanban.model.Epic;
 import kanban.model.SubTask;
 import kanban.model.Task;
@@ -8,6 +17,8 @@ import org.junit.jupiter.api.Test;
 
 import static kanban.model.TaskStatus.NEW;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class InMemoryHistoryManagerTest {
     private InMemoryHistoryManager historyManager;
@@ -51,4 +62,142 @@ class InMemoryHistoryManagerTest {
         assertEquals(1, historyManager.getHistory().size(), "Неверное количество элементов'");
         assertEquals(task, historyManager.getHistory().getFirst(), "Задачи не совпадают");
     }
-}
\ No newline at end of file
+
+    @Test
+    void removeFromHistory() {
+        Task task1 = new Task(1L, "Test task1", "Test task1 description", NEW);
+        Task task2 = new Task(2L, "Test task2", "Test task2 description", NEW);
+        Task task3 = new Task(3L, "Test task3", "Test task3 description", NEW);
+        historyManager.add(task1);
+        historyManager.add(task2);
+        historyManager.add(task3);
+
+        historyManager.remove(2L);
+        assertEquals(List.of(task1, task3), historyManager.getHistory());
+        historyManager.remove(1L);
+        historyManager.remove(3L);
+        assertEquals(List.of(), historyManager.getHistory());
+
+        historyManager.add(task2);
+        assertEquals(List.of(task2), historyManager.getHistory());
+    }
+
+    @Test
+    void oldestViewEvictedWhenFull() {
+        historyManager = new InMemoryHistoryManager(3);
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            tasks.add(new Task(id, "Test task" + id, "Test task description", NEW));
+        }
+
+        historyManager.add(tasks.get(0));
+        historyManager.add(tasks.get(1));
+        historyManager.add(tasks.get(2));
+        historyManager.add(tasks.get(0));
+        historyManager.add(tasks.get(3));
+        assertEquals(List.of(tasks.get(2), tasks.get(0), tasks.get(3)), historyManager.getHistory());
+
+        historyManager.add(tasks.get(4));
+        assertEquals(List.of(tasks.get(0), tasks.get(3), tasks.get(4)), historyManager.getHistory());
+    }
+
+    @Test
+    void manyDistinctViewsStayBounded() {
+        historyManager = new InMemoryHistoryManager(100);
+        // Эталон: просмотры в порядке от старых к новым, не больше 100
+        Map<Long, Task> expected = new LinkedHashMap<>();
+
+        // Вытеснение и повторные просмотры многократно перестраивают цепочки индекса
+        for (long id = 1; id <= 100_000; id++) {
+            List<Long> viewedIds = id % 3 == 0 ? List.of(id, id - 1) : List.of(id);
+            for (Long viewedId : viewedIds) {
+                Task task = new Task(viewedId, "Test task", "Test task description", NEW);
+                historyManager.add(task);
+                expected.remove(viewedId);
+                expected.put(viewedId, task);
+                if (expected.size() > 100) {
+                    expected.remove(expected.keySet().iterator().next());
+                }
+            }
+            if (id % 7 == 0) {
+                historyManager.remove(id - 2);
+                expected.remove(id - 2);
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected.values()), historyManager.getHistory());
+    }
+
+    @Test
+    void removeAllFromHistory() {
+        for (long id = 1; id <= 6; id++) {
+            historyManager.add(new Task(id, "Task " + id, "Description " + id, NEW));
+        }
+
+        // Удаляемых id меньше, чем просмотров, и больше, чем просмотров
+        historyManager.removeAll(List.of(2L, 4L));
+        historyManager.removeAll(LongStream.rangeClosed(5, 100).boxed().collect(Collectors.toSet()));
+        assertEquals(List.of(1L, 3L), historyManager.getHistory().stream().map(Task::getId).toList());
+
+        historyManager.add(new Task(5L, "Task 5", "Description 5", NEW));
+        assertEquals(List.of(1L, 3L, 5L), historyManager.getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void descendingIteratorAndPages() {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            Task task = new Task(id, "Task " + id, "Description " + id, NEW);
+            tasks.add(task);
+            historyManager.add(task);
+        }
+        historyManager.add(tasks.get(1));
+
+        List<Task> descending = new ArrayList<>();
+        historyManager.descendingIterator().forEachRemaining(descending::add);
+        assertEquals(historyManager.getHistory().reversed(), descending);
+
+        HistoryPage page = historyManager.getHistoryPage(null, HistoryPage.FIRST_CURSOR, 2);
+        assertEquals(List.of(tasks.get(1), tasks.get(4)), page.getTasks());
+        page = historyManager.getHistoryPage(null, page.getNextCursor(), 2);
+        assertEquals(List.of(tasks.get(3), tasks.get(2)), page.getTasks());
+        page = historyManager.getHistoryPage(null, page.getNextCursor(), 2);
+        assertEquals(List.of(tasks.get(0)), page.getTasks());
+        assertNull(page.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> historyManager.getHistoryPage(null, 0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> historyManager.getHistoryPage(null, HistoryPage.FIRST_CURSOR, -1));
+
+        Iterator<Task> iterator = historyManager.descendingIterator();
+        historyManager.remove(3L);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void pagesDoNotShiftWhenHistoryChanges() {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            Task task = new Task(id, "Task " + id, "Description " + id, NEW);
+            tasks.add(task);
+            historyManager.add(task);
+        }
+
+        HistoryPage firstPage = historyManager.getHistoryPage(null, HistoryPage.FIRST_CURSOR, 2);
+        assertEquals(List.of(tasks.get(4), tasks.get(3)), firstPage.getTasks());
+
+        // Новый просмотр, повторный просмотр и удаление между запросами страниц
+        historyManager.add(new Task(6L, "Task 6", "Description 6", NEW));
+        historyManager.add(tasks.get(0));
+        historyManager.remove(5L);
+
+        HistoryPage secondPage = historyManager.getHistoryPage(null, firstPage.getNextCursor(), 2);
+        assertEquals(List.of(tasks.get(2), tasks.get(1)), secondPage.getTasks());
+        // Задача 1 просмотрена повторно и стала новее курсора, более старых просмотров нет
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+}
@@ -0,0 +1,107 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalTreeTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 10, 0);
+    private IntervalTree intervalTree;
+
+    @BeforeEach
+    void setUp() {
+        intervalTree = new IntervalTree();
+    }
+
+    private Task createTask(Long id, int startMinutes, int durationMinutes) {
+        return new Task(id, "Task " + id, "", NEW,
+                START.plusMinutes(startMinutes), Duration.ofMinutes(durationMinutes));
+    }
+
+    @Test
+    void findOverlaps() {
+        // Задачи по 10 минут с интервалом 20 минут
+        for (long i = 0; i < 1000; i++) {
+            intervalTree.add(createTask(i, (int) i * 20, 10));
+        }
+        assertEquals(1000, intervalTree.size());
+
+        assertTrue(intervalTree.hasOverlap(START.plusMinutes(5), START.plusMinutes(15), null));
+        assertTrue(intervalTree.hasOverlap(START.plusMinutes(15), START.plusMinutes(25), null));
+        assertTrue(intervalTree.hasOverlap(START.plusMinutes(-5), START.plusMinutes(100), null));
+        assertFalse(intervalTree.hasOverlap(START.plusMinutes(10), START.plusMinutes(20), null));
+        assertFalse(intervalTree.hasOverlap(START.plusMinutes(-10), START, null));
+        assertFalse(intervalTree.hasOverlap(START.plusMinutes(20_000), START.plusMinutes(20_010), null));
+    }
+
+    @Test
+    void excludeUpdatedTask() {
+        intervalTree.add(createTask(1L, 0, 10));
+        intervalTree.add(createTask(2L, 20, 10));
+
+        assertFalse(intervalTree.hasOverlap(START.plusMinutes(5), START.plusMinutes(15), 1L));
+        assertTrue(intervalTree.hasOverlap(START.plusMinutes(5), START.plusMinutes(25), 1L));
+    }
+
+    @Test
+    void removeAndReplaceTask() {
+        intervalTree.add(createTask(1L, 0, 10));
+        intervalTree.remove(1L);
+        assertEquals(0, intervalTree.size());
+        assertFalse(intervalTree.hasOverlap(START, START.plusMinutes(10), null));
+
+        intervalTree.add(createTask(2L, 0, 10));
+        intervalTree.add(createTask(2L, 30, 10));
+        assertEquals(1, intervalTree.size());
+        assertFalse(intervalTree.hasOverlap(START, START.plusMinutes(10), null));
+        assertTrue(intervalTree.hasOverlap(START.plusMinutes(35), START.plusMinutes(36), null));
+    }
+
+    @Test
+    void bulkBuildMatchesIncrementalAdds() {
+        Random random = new Random(42);
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            tasks.add(createTask(id, random.nextInt(10_000), random.nextInt(30)));
+        }
+        tasks.sort(Comparator.comparing(Task::getStartTime).thenComparing(Task::getId));
+
+        IntervalTree incremental = new IntervalTree();
+        tasks.forEach(incremental::add);
+        intervalTree.addAll(tasks);
+        assertEquals(tasks.size(), intervalTree.size());
+
+        // Построенное дерево остается рабочим и после изменений
+        intervalTree.remove(tasks.getFirst().getId());
+        incremental.remove(tasks.getFirst().getId());
+        intervalTree.add(createTask(1_000L, 5_000, 10));
+        incremental.add(createTask(1_000L, 5_000, 10));
+
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime start = START.plusMinutes(random.nextInt(10_100));
+            LocalDateTime end = start.plusMinutes(1 + random.nextInt(20));
+            assertEquals(incremental.hasOverlap(start, end, null), intervalTree.hasOverlap(start, end, null));
+        }
+    }
+
+    @Test
+    void zeroDurationTasksDoNotOverlap() {
+        intervalTree.add(createTask(1L, 0, 0));
+
+        assertFalse(intervalTree.hasOverlap(START, START.plusMinutes(10), null));
+        assertFalse(intervalTree.hasOverlap(START, START, null));
+    }
+}
@@ -0,0 +1,223 @@
+package kanban.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+import kanban.exception.ManagerSaveException;
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import kanban.model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournaledFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+    private static final String testFileName = "JournaledFileBackedTaskManagerTest";
+    private static final String fileExtension = ".csv";
+    private File testFile;
+    private Path journal;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            testFile = File.createTempFile(testFileName, fileExtension);
+            journal = Path.of(testFile.getPath() + ".journal");
+            taskManager = new FileBackedTaskManager(testFile, Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        } catch (IOException ioException) {
+            throw new RuntimeException(ioException.getMessage());
+        }
+    }
+
+    @Test
+    void changesAreAppendedToJournal() throws IOException {
+        createTestTasks();
+        String snapshot = Files.readString(testFile.toPath());
+        long journalSize = Files.size(journal);
+
+        Task task = taskManager.getTaskList().getFirst();
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+
+        // Файл данных не перезаписан, в журнал дописана одна запись
+        assertEquals(snapshot, Files.readString(testFile.toPath()));
+        List<String> records = Files.readAllLines(journal);
+        assertTrue(records.getLast().startsWith("PUT," + task.getId() + ",TASK,"));
+        assertEquals(journalSize + (records.getLast() + "\n").getBytes(StandardCharsets.UTF_8).length,
+                Files.size(journal));
+    }
+
+    @Test
+    void loadFromFileReplaysJournal() {
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+        taskManager.deleteTaskById(taskManager.getTaskList().getLast().getId());
+        Epic epic = taskManager.getEpicList().getFirst();
+        SubTask subTask = taskManager.getSubTaskListByEpicId(epic.getId()).getFirst();
+        subTask.setStatus(TaskStatus.IN_PROGRESS);
+        taskManager.updateSubTask(subTask);
+        taskManager.deleteEpicById(taskManager.getEpicList().getLast().getId());
+        taskManager.createAll(List.of(new Task(100L, "Batch task", "Batch task description", TaskStatus.NEW)));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertArrayEquals(taskManager.getTaskList().toArray(), taskManager2.getTaskList().toArray());
+        assertArrayEquals(taskManager.getEpicList().toArray(), taskManager2.getEpicList().toArray());
+        assertArrayEquals(taskManager.getSubTaskList().toArray(), taskManager2.getSubTaskList().toArray());
+        assertEquals(TaskStatus.IN_PROGRESS, taskManager2.getEpicById(epic.getId()).getStatus());
+
+        // Загруженный менеджер продолжает тот же журнал
+        taskManager2.deleteAllSubTasks();
+        FileBackedTaskManager taskManager3 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals(0, taskManager3.getSubTaskList().size());
+        assertEquals(TaskStatus.NEW, taskManager3.getEpicById(epic.getId()).getStatus());
+    }
+
+    @Test
+    void multilineRecordsAreReplayed() {
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        task.setName("Имя, с запятой");
+        task.setDescription("Первая строка\n\"Вторая\" строка");
+        taskManager.updateTask(task);
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals("Имя, с запятой", taskManager2.getTaskById(task.getId()).getName());
+        assertEquals("Первая строка\n\"Вторая\" строка", taskManager2.getTaskById(task.getId()).getDescription());
+    }
+
+    @Test
+    void journalOfOlderSnapshotIsNotReplayed() throws IOException {
+        createTestTasks();
+        List<String> staleJournal = Files.readAllLines(journal);
+
+        // Снимок записан, но журнал не успели начать заново
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile);
+        assertFalse(Files.exists(journal));
+        Files.write(journal, staleJournal);
+        taskManager2.deleteAllTasks();
+        Files.write(journal, staleJournal);
+
+        FileBackedTaskManager taskManager3 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals(0, taskManager3.getTaskList().size());
+        assertEquals(3, taskManager3.getSubTaskList().size());
+    }
+
+    @Test
+    void batchesAreReplayedTogether() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 9, 0);
+        taskManager.createAll(List.of(
+                new SubTask(11L, "Test subTask", "Test subTask description", TaskStatus.DONE, 10L),
+                new Epic(10L, "Test epic", "Test epic description")));
+        Long firstId = taskManager.createTask(new Task("Test task1", "Test task1 description", TaskStatus.NEW,
+                start, Duration.ofMinutes(30)));
+        Long secondId = taskManager.createTask(new Task("Test task2", "Test task2 description", TaskStatus.NEW,
+                start.plusMinutes(30), Duration.ofMinutes(30)));
+
+        // Задачи меняются местами: по отдельности каждое обновление пересекалось бы с другой задачей
+        taskManager.updateAll(List.of(
+                new Task(firstId, "Test task1", "Test task1 description", TaskStatus.NEW,
+                        start.plusMinutes(30), Duration.ofMinutes(30)),
+                new Task(secondId, "Test task2", "Test task2 description", TaskStatus.NEW,
+                        start, Duration.ofMinutes(30))));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals(List.of(taskManager2.getSubTaskById(11L)), taskManager2.getSubTaskListByEpicId(10L));
+        assertEquals(TaskStatus.DONE, taskManager2.getEpicById(10L).getStatus());
+        assertEquals(start.plusMinutes(30), taskManager2.getTaskById(firstId).getStartTime());
+        assertEquals(start, taskManager2.getTaskById(secondId).getStartTime());
+    }
+
+    @Test
+    void unfinishedRecordIsDiscarded() throws IOException {
+        createTestTasks();
+        long journalSize = Files.size(journal);
+        Files.writeString(journal, "PUT,500,TASK,\"Недописанная", StandardOpenOption.APPEND);
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals(taskManager.getTaskList(), taskManager2.getTaskList());
+        assertEquals(journalSize, Files.size(journal));
+
+        // Следующие записи дописываются после последней целой записи
+        Long id = taskManager2.createTask(new Task("Test task", "Test task description", TaskStatus.NEW));
+        FileBackedTaskManager taskManager3 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals("Test task", taskManager3.getTaskById(id).getName());
+    }
+
+    @Test
+    void unfinishedBatchIsDiscarded() throws IOException {
+        createTestTasks();
+        List<Task> tasks = taskManager.getTaskList();
+        List<TaskStatus> statuses = tasks.stream().map(Task::getStatus).toList();
+        taskManager.updateAll(tasks.stream()
+                .map(task -> new Task(task.getId(), task.getName(), task.getDescription(), TaskStatus.DONE))
+                .toList());
+
+        // Процесс прервался до записи последней задачи пакета
+        List<String> records = Files.readAllLines(journal);
+        assertTrue(records.get(records.size() - tasks.size() - 1).startsWith("BATCH," + tasks.size()));
+        Files.write(journal, records.subList(0, records.size() - 1));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals(statuses, taskManager2.getTaskList().stream().map(Task::getStatus).toList());
+        assertEquals(records.size() - tasks.size() - 1, Files.readAllLines(journal).size());
+    }
+
+    @Test
+    void epicUpdateWithoutStatusIsReplayed() {
+        createTestTasks();
+        Epic epic = taskManager.getEpicList().getFirst();
+        // Так эпик приходит из JSON: статус не задан
+        Epic update = new Epic(epic.getId(), "renamed", epic.getDescription());
+        update.setStatus(null);
+        taskManager.updateEpic(update);
+        taskManager.createTask(new Task("Test task", "Test task description", TaskStatus.NEW));
+
+        FileBackedTaskManager taskManager2 = FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL);
+        assertEquals("renamed", taskManager2.getEpicById(epic.getId()).getName());
+        assertEquals(taskManager.getEpicById(epic.getId()).getStatus(),
+                taskManager2.getEpicById(epic.getId()).getStatus());
+        assertEquals(taskManager.getTaskList(), taskManager2.getTaskList());
+    }
+
+    @Test
+    void damagedRecordInTheMiddleIsReported() throws IOException {
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+
+        List<String> records = new ArrayList<>(Files.readAllLines(journal));
+        records.add(1, "DELETE,TASK,not-a-number");
+        Files.write(journal, records);
+        long journalSize = Files.size(journal);
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(testFile,
+                Managers.getDefaultHistory(), StorageMode.JOURNAL));
+        assertEquals(journalSize, Files.size(journal));
+    }
+}
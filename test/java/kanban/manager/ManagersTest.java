@@ -11,6 +11,11 @@ class ManagersTest {
         assertInstanceOf(InMemoryTaskManager.class, Managers.getDefault());
     }
 
+    @Test
+    void getConcurrentTaskManager() {
+        assertInstanceOf(ConcurrentTaskManager.class, Managers.getConcurrentTaskManager());
+    }
+
     @Test
     void getDefaultHistory() {
         assertInstanceOf(InMemoryHistoryManager.class, Managers.getDefaultHistory());
@@ -0,0 +1,76 @@
+package kanban.manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Month;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyGridTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2024, Month.JANUARY, 1, 0, 0);
+    private OccupancyGrid occupancyGrid;
+
+    @BeforeEach
+    void setUp() {
+        occupancyGrid = new OccupancyGrid(ORIGIN, Duration.ofMinutes(15), Duration.ofDays(366));
+    }
+
+    private Task createTask(Long id, LocalDateTime startTime, int durationMinutes) {
+        return new Task(id, "Task " + id, "", NEW, startTime, Duration.ofMinutes(durationMinutes));
+    }
+
+    @Test
+    void findOverlapsOnGrid() {
+        LocalDateTime start = ORIGIN.plusDays(100).plusHours(9);
+        occupancyGrid.add(createTask(1L, start, 60));
+        occupancyGrid.add(createTask(2L, start.plusHours(2), 15));
+
+        assertTrue(occupancyGrid.hasOverlap(start.plusMinutes(45), start.plusMinutes(75), null));
+        assertTrue(occupancyGrid.hasOverlap(start.plusMinutes(50), start.plusMinutes(55), null));
+        assertTrue(occupancyGrid.hasOverlap(start.minusHours(10), start.plusHours(10), null));
+        assertFalse(occupancyGrid.hasOverlap(start.plusMinutes(60), start.plusMinutes(120), null));
+        assertFalse(occupancyGrid.hasOverlap(start.minusMinutes(15), start, null));
+
+        // Задача не пересекается сама с собой
+        assertFalse(occupancyGrid.hasOverlap(start.plusMinutes(30), start.plusMinutes(90), 1L));
+        assertTrue(occupancyGrid.hasOverlap(start.plusMinutes(30), start.plusMinutes(135), 1L));
+
+        occupancyGrid.remove(1L);
+        assertFalse(occupancyGrid.hasOverlap(start, start.plusMinutes(60), null));
+    }
+
+    @Test
+    void tasksOutsideGridFallBackToIntervalIndex() {
+        LocalDateTime start = ORIGIN.plusDays(10).plusHours(9);
+        // Не выровнена по сетке
+        occupancyGrid.add(createTask(1L, start.plusMinutes(5), 5));
+        // За горизонтом
+        occupancyGrid.add(createTask(2L, ORIGIN.plusYears(2), 30));
+        // До начала сетки
+        occupancyGrid.add(createTask(3L, ORIGIN.minusHours(1), 90));
+
+        assertTrue(occupancyGrid.hasOverlap(start, start.plusMinutes(15), null));
+        assertFalse(occupancyGrid.hasOverlap(start.plusMinutes(10), start.plusMinutes(15), null));
+        assertTrue(occupancyGrid.hasOverlap(ORIGIN.plusYears(2).plusMinutes(15), ORIGIN.plusYears(2).plusHours(1), null));
+        assertTrue(occupancyGrid.hasOverlap(ORIGIN, ORIGIN.plusMinutes(15), null));
+        assertFalse(occupancyGrid.hasOverlap(ORIGIN.plusMinutes(30), ORIGIN.plusMinutes(45), null));
+
+        occupancyGrid.clear();
+        assertFalse(occupancyGrid.hasOverlap(start, start.plusMinutes(15), null));
+    }
+
+    @Test
+    void invalidGridConfiguration() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new OccupancyGrid(ORIGIN, Duration.ZERO, Duration.ofDays(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OccupancyGrid(ORIGIN, Duration.ofMinutes(15), Duration.ofMinutes(10)));
+    }
+}
@@ -0,0 +1,206 @@
+package kanban.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageStoreTest {
+    private static final int PAGE_SIZE = 128;
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    private static PageStore writeAndRead(PageStore pageStore) throws IOException {
+        File file = File.createTempFile("PageStoreTest", ".pages");
+        pageStore.write(file.toPath(), pageStore.takeDirtyPages(), false);
+        return PageStore.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+
+    @Test
+    void putGetAndRemove() {
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        pageStore.put(1L, bytes("первая"));
+        pageStore.put(2L, bytes("вторая"));
+        pageStore.put(1L, bytes("первая, измененная"));
+
+        assertEquals("первая, измененная", text(pageStore.get(1L)));
+        assertEquals("вторая", text(pageStore.get(2L)));
+        assertEquals(2, pageStore.getPageCount());
+
+        pageStore.remove(1L);
+        assertNull(pageStore.get(1L));
+        assertFalse(pageStore.contains(1L));
+        assertEquals(Set.of(2L), pageStore.ids());
+    }
+
+    @Test
+    void freeSlotsAndPagesAreReused() {
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        for (long id = 0; id < 40; id++) {
+            pageStore.put(id, bytes("запись " + id));
+        }
+        int pageCount = pageStore.getPageCount();
+
+        // Освободившееся место после уплотнения страниц занимают новые записи
+        for (long id = 0; id < 40; id += 2) {
+            pageStore.remove(id);
+        }
+        for (long id = 100; id < 120; id++) {
+            pageStore.put(id, bytes("запись " + id));
+        }
+        assertEquals(pageCount, pageStore.getPageCount());
+
+        for (long id = 1; id < 40; id += 2) {
+            assertEquals("запись " + id, text(pageStore.get(id)));
+        }
+        for (long id = 100; id < 120; id++) {
+            assertEquals("запись " + id, text(pageStore.get(id)));
+        }
+    }
+
+    @Test
+    void largeRecordSpansPages() throws IOException {
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        String large = "длинная запись ".repeat(50);
+        pageStore.put(1L, bytes("маленькая"));
+        pageStore.put(2L, bytes(large));
+        int pageCount = pageStore.getPageCount();
+        assertTrue(pageCount > 5);
+
+        PageStore loaded = writeAndRead(pageStore);
+        assertEquals(large, text(loaded.get(2L)));
+        assertEquals("маленькая", text(loaded.get(1L)));
+
+        // Страницы удаленной записи занимает следующая
+        loaded.remove(2L);
+        loaded.put(3L, bytes(large));
+        assertEquals(pageCount, loaded.getPageCount());
+        assertEquals(large, text(loaded.get(3L)));
+    }
+
+    @Test
+    void onlyDirtyPagesAreTaken() throws IOException {
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        for (long id = 0; id < 40; id++) {
+            pageStore.put(id, bytes("запись " + id));
+        }
+        PageStore.PageWrites initial = pageStore.takeDirtyPages();
+        assertTrue(initial.isComplete());
+        assertEquals(pageStore.getPageCount(), initial.getPages().size());
+
+        pageStore.put(5L, bytes("запись 5*"));
+        PageStore.PageWrites update = pageStore.takeDirtyPages();
+        assertFalse(update.isComplete());
+        assertEquals(1, update.getPages().size());
+
+        pageStore.retry(update);
+        assertEquals(update.getPages(), pageStore.takeDirtyPages().getPages());
+        assertTrue(pageStore.takeDirtyPages().getPages().isEmpty());
+    }
+
+    @Test
+    void writtenPagesAreReadBack() throws IOException {
+        File file = File.createTempFile("PageStoreTest", ".pages");
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        for (long id = 0; id < 40; id++) {
+            pageStore.put(id, bytes("запись " + id));
+        }
+        pageStore.write(file.toPath(), pageStore.takeDirtyPages(), false);
+        pageStore.remove(7L);
+        pageStore.put(8L, bytes("запись 8, измененная"));
+        pageStore.write(file.toPath(), pageStore.takeDirtyPages(), true);
+
+        PageStore loaded = PageStore.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+        assertEquals(pageStore.ids(), loaded.ids());
+        assertEquals("запись 8, измененная", text(loaded.get(8L)));
+        assertEquals(PAGE_SIZE, loaded.getPageSize());
+    }
+
+    @Test
+    void corruptedPageIsDetected() throws IOException {
+        File file = File.createTempFile("PageStoreTest", ".pages");
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        pageStore.put(1L, bytes("запись"));
+        pageStore.write(file.toPath(), pageStore.takeDirtyPages(), false);
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        content[content.length - 1] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> PageStore.read(ByteBuffer.wrap(content)));
+        assertThrows(IllegalArgumentException.class, () -> new PageStore(16));
+    }
+
+    @Test
+    void interruptedWriteIsRecovered() throws IOException {
+        Path path = File.createTempFile("PageStoreTest", ".pages").toPath();
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        pageStore.put(1L, bytes("a".repeat(30)));
+        pageStore.put(2L, bytes("b".repeat(30)));
+        pageStore.write(path, pageStore.takeDirtyPages(), false);
+        byte[] before = Files.readAllBytes(path);
+
+        // Запись не помещается в прежнюю страницу и переносится в новую
+        pageStore.put(1L, bytes("c".repeat(70)));
+        PageStore.PageWrites update = pageStore.takeDirtyPages();
+        assertEquals(Set.of(1, 2), update.getPages());
+
+        Path expected = File.createTempFile("PageStoreTest", ".pages").toPath();
+        Files.write(expected, before);
+        pageStore.write(expected, update, false);
+        byte[] after = Files.readAllBytes(expected);
+        assertEquals(0, Files.size(PageStore.doubleWritePath(expected)));
+
+        // Копия страниц записана, а по месту - первая страница и половина второй: запись 1 пропала бы
+        pageStore.writeDoubleWrite(PageStore.doubleWritePath(path), update, false);
+        byte[] torn = Arrays.copyOf(after, after.length);
+        Arrays.fill(torn, 2 * PAGE_SIZE + PAGE_SIZE / 2, torn.length, (byte) 0);
+        Files.write(path, torn);
+        assertThrows(IllegalArgumentException.class, () -> PageStore.read(ByteBuffer.wrap(torn)));
+
+        PageStore.recover(path);
+        assertArrayEquals(after, Files.readAllBytes(path));
+        assertFalse(Files.exists(PageStore.doubleWritePath(path)));
+        PageStore loaded = PageStore.read(ByteBuffer.wrap(Files.readAllBytes(path)));
+        assertEquals(Set.of(1L, 2L), loaded.ids());
+        assertEquals("c".repeat(70), text(loaded.get(1L)));
+    }
+
+    @Test
+    void unfinishedDoubleWriteIsDiscarded() throws IOException {
+        Path path = File.createTempFile("PageStoreTest", ".pages").toPath();
+        PageStore pageStore = new PageStore(PAGE_SIZE);
+        pageStore.put(1L, bytes("запись"));
+        pageStore.write(path, pageStore.takeDirtyPages(), false);
+        byte[] before = Files.readAllBytes(path);
+
+        // Процесс прервался во время записи копии: по месту еще ничего не записано
+        pageStore.put(1L, bytes("запись, измененная"));
+        Path doubleWrite = PageStore.doubleWritePath(path);
+        pageStore.writeDoubleWrite(doubleWrite, pageStore.takeDirtyPages(), false);
+        byte[] copy = Files.readAllBytes(doubleWrite);
+        Files.write(doubleWrite, Arrays.copyOf(copy, copy.length - 10));
+
+        PageStore.recover(path);
+        assertArrayEquals(before, Files.readAllBytes(path));
+        assertFalse(Files.exists(doubleWrite));
+        assertEquals("запись", text(PageStore.read(ByteBuffer.wrap(before)).get(1L)));
+    }
+}
@@ -0,0 +1,172 @@
+package kanban.manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kanban.model.Epic;
+import kanban.model.SubTask;
+import kanban.model.Task;
+import kanban.model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedFileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+    private static final String testFileName = "PagedFileBackedTaskManagerTest";
+    private static final String fileExtension = ".pages";
+    private File testFile;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            testFile = File.createTempFile(testFileName, fileExtension);
+            taskManager = new FileBackedTaskManager(testFile, Managers.getDefaultHistory(), StorageMode.PAGED);
+        } catch (IOException ioException) {
+            throw new RuntimeException(ioException.getMessage());
+        }
+    }
+
+    private FileBackedTaskManager reload() {
+        return FileBackedTaskManager.loadFromFile(testFile, Managers.getDefaultHistory(), StorageMode.PAGED);
+    }
+
+    private List<Task> createManyTasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            tasks.add(new Task(id, "Задача " + id, "Описание задачи " + id, TaskStatus.NEW));
+        }
+        taskManager.createAll(tasks);
+        return tasks;
+    }
+
+    // Число страниц, которые отличаются в двух версиях файла
+    private static int changedPages(byte[] before, byte[] after) {
+        int changed = 0;
+        for (int offset = 0; offset < Math.max(before.length, after.length); offset += PageStore.DEFAULT_PAGE_SIZE) {
+            byte[] beforePage = new byte[PageStore.DEFAULT_PAGE_SIZE];
+            byte[] afterPage = new byte[PageStore.DEFAULT_PAGE_SIZE];
+            System.arraycopy(before, Math.min(offset, before.length), beforePage, 0,
+                    Math.max(0, Math.min(PageStore.DEFAULT_PAGE_SIZE, before.length - offset)));
+            System.arraycopy(after, Math.min(offset, after.length), afterPage, 0,
+                    Math.max(0, Math.min(PageStore.DEFAULT_PAGE_SIZE, after.length - offset)));
+            if (!Arrays.equals(beforePage, afterPage)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Test
+    void loadFromFileRestoresPages() throws IOException {
+        createTestTasks();
+        Task task = taskManager.getTaskList().getFirst();
+        task.setName("Имя, с запятой");
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+        Epic epic = taskManager.getEpicList().getFirst();
+        SubTask subTask = taskManager.getSubTaskListByEpicId(epic.getId()).getFirst();
+        subTask.setStatus(TaskStatus.IN_PROGRESS);
+        taskManager.updateSubTask(subTask);
+        taskManager.deleteEpicById(taskManager.getEpicList().getLast().getId());
+
+        assertTrue(PageStore.isPageFile(ByteBuffer.wrap(Files.readAllBytes(testFile.toPath()))));
+        FileBackedTaskManager taskManager2 = reload();
+        assertArrayEquals(taskManager.getTaskList().toArray(), taskManager2.getTaskList().toArray());
+        assertArrayEquals(taskManager.getEpicList().toArray(), taskManager2.getEpicList().toArray());
+        assertArrayEquals(taskManager.getSubTaskList().toArray(), taskManager2.getSubTaskList().toArray());
+        assertEquals("Имя, с запятой", taskManager2.getTaskById(task.getId()).getName());
+        assertEquals(TaskStatus.IN_PROGRESS, taskManager2.getEpicById(epic.getId()).getStatus());
+
+        // Загруженный менеджер продолжает изменять те же страницы
+        taskManager2.deleteAllSubTasks();
+        assertEquals(0, reload().getSubTaskList().size());
+    }
+
+    @Test
+    void onlyChangedPagesAreWritten() throws IOException {
+        List<Task> tasks = createManyTasks(500);
+        byte[] before = Files.readAllBytes(testFile.toPath());
+        assertTrue(before.length > 5 * PageStore.DEFAULT_PAGE_SIZE, "Задачи записаны в одну страницу");
+
+        Task task = tasks.get(250);
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+        byte[] after = Files.readAllBytes(testFile.toPath());
+
+        assertEquals(before.length, after.length);
+        assertEquals(1, changedPages(before, after));
+        assertEquals(TaskStatus.DONE, reload().getTaskById(task.getId()).getStatus());
+    }
+
+    @Test
+    void deletedEpicRemovesOnlyItsRecords() throws IOException {
+        createManyTasks(500);
+        Long epicId = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        taskManager.createSubTask(new SubTask("Подзадача 1", "Описание", TaskStatus.NEW, epicId));
+        taskManager.createSubTask(new SubTask("Подзадача 2", "Описание", TaskStatus.DONE, epicId));
+        byte[] before = Files.readAllBytes(testFile.toPath());
+
+        taskManager.deleteEpicById(epicId);
+        byte[] after = Files.readAllBytes(testFile.toPath());
+
+        // Эпик и подзадачи могут лежать в разных страницах, но остальные страницы не меняются
+        assertTrue(changedPages(before, after) <= 3);
+        FileBackedTaskManager taskManager2 = reload();
+        assertEquals(0, taskManager2.getEpicList().size());
+        assertEquals(0, taskManager2.getSubTaskList().size());
+        assertEquals(500, taskManager2.getTaskList().size());
+    }
+
+    @Test
+    void freeSlotsAreReused() throws IOException {
+        createManyTasks(500);
+        long length = Files.size(testFile.toPath());
+
+        for (long id = 100; id < 200; id++) {
+            taskManager.deleteTaskById(id);
+        }
+        for (int i = 0; i < 100; i++) {
+            taskManager.createTask(new Task("Новая задача " + i, "Описание", TaskStatus.NEW));
+        }
+
+        assertEquals(length, Files.size(testFile.toPath()));
+        assertEquals(500, reload().getTaskList().size());
+    }
+
+    @Test
+    void largeTaskSpansPages() {
+        createManyTasks(10);
+        String description = "Очень длинное описание. ".repeat(1000);
+        Long id = taskManager.createTask(new Task("Большая задача", description, TaskStatus.NEW));
+
+        assertEquals(description, reload().getTaskById(id).getDescription());
+
+        taskManager.updateTask(new Task(id, "Большая задача", "Короткое описание", TaskStatus.NEW));
+        assertEquals("Короткое описание", reload().getTaskById(id).getDescription());
+    }
+
+    @Test
+    void snapshotIsConvertedToPages() throws IOException {
+        FileBackedTaskManager snapshotManager = new FileBackedTaskManager(testFile);
+        snapshotManager.createAll(List.of(new Epic(1L, "Эпик", "Описание"),
+                new SubTask(2L, "Подзадача", "Описание", TaskStatus.DONE, 1L),
+                new Task(3L, "Задача", "Описание", TaskStatus.NEW)));
+
+        FileBackedTaskManager taskManager2 = reload();
+        assertTrue(PageStore.isPageFile(ByteBuffer.wrap(Files.readAllBytes(testFile.toPath()))));
+        assertEquals(TaskStatus.DONE, taskManager2.getEpicById(1L).getStatus());
+
+        // Файл страниц читается и в других режимах
+        FileBackedTaskManager taskManager3 = FileBackedTaskManager.loadFromFile(testFile);
+        assertEquals(1, taskManager3.getSubTaskList().size());
+        assertEquals(1, taskManager3.getTaskList().size());
+    }
+}
@@ -0,0 +1,59 @@
+package kanban.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import kanban.model.Task;
+import kanban.model.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelCsvLoaderTest {
+    private static final String HEADER = "id,type,name,status,description,startTime,duration,epic";
+
+    @Test
+    void rowsAreParsedInOrderAcrossChunks() {
+        CsvCodec codec = new CsvCodec();
+        StringBuilder content = new StringBuilder(HEADER).append("\r\n");
+        List<Task> expected = new ArrayList<>();
+        for (long id = 1000; id > 0; id--) {
+            // Каждая третья запись занимает несколько строк, в части записей кавычки
+            String name = id % 3 == 0 ? "Задача\n№" + id + ",\n\"срочно\"" : "Задача №" + id;
+            Task task = new Task(id, name, "Описание", TaskStatus.NEW);
+            content.append(codec.encode(task)).append(id % 2 == 0 ? "\r\n" : "\n");
+            expected.add(task);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+
+        // Маленькие части: разрезы попадают внутрь кавычек и между байтами кириллических символов
+        for (int chunkSize : List.of(1, 7, 64, 1 << 20)) {
+            List<Task> tasks = ParallelCsvLoader.load(buffer, chunkSize);
+
+            assertEquals(expected, tasks);
+            assertEquals(expected.stream().map(Task::getName).toList(), tasks.stream().map(Task::getName).toList());
+        }
+    }
+
+    @Test
+    void headerOnlyAndLastLineWithoutNewline() {
+        ByteBuffer header = ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.UTF_8));
+        assertTrue(ParallelCsvLoader.load(header, 1).isEmpty());
+
+        ByteBuffer rows = ByteBuffer.wrap((HEADER + "\n1,TASK,Первая,NEW,,,0,\n\n2,TASK,Вторая,NEW,,,0,")
+                .getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("Первая", "Вторая"), ParallelCsvLoader.load(rows, 1).stream().map(Task::getName)
+                .toList());
+    }
+
+    @Test
+    void rowErrorsArePropagated() {
+        ByteBuffer rows = ByteBuffer.wrap((HEADER + "\n1,TASK,Первая,NEW,,,0,\nне число,TASK,Вторая,NEW,,,0,\n")
+                .getBytes(StandardCharsets.UTF_8));
+        assertThrows(NumberFormatException.class, () -> ParallelCsvLoader.load(rows, 4));
+    }
+}
@@ -0,0 +1,86 @@
+package kanban.manager;
+
+import java.util.List;
+
+import kanban.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static kanban.model.TaskStatus.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PartitionedHistoryManagerTest {
+    private static final int CAPACITY = 3;
+    private static final long PARTITION_FOOTPRINT = InMemoryHistoryManager.estimateFootprint(CAPACITY);
+    private PartitionedHistoryManager historyManager;
+    private Task task1;
+    private Task task2;
+    private Task task3;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = new PartitionedHistoryManager(CAPACITY, 2 * PARTITION_FOOTPRINT);
+        task1 = new Task(1L, "Test task1", "Test task1 description", NEW);
+        task2 = new Task(2L, "Test task2", "Test task2 description", NEW);
+        task3 = new Task(3L, "Test task3", "Test task3 description", NEW);
+    }
+
+    @Test
+    void historyIsSeparatedByClient() {
+        historyManager = new PartitionedHistoryManager(CAPACITY, 10 * PARTITION_FOOTPRINT);
+        historyManager.add("alice", task1);
+        historyManager.add("bob", task2);
+        historyManager.add("alice", task3);
+        historyManager.add(task2);
+
+        assertEquals(List.of(task1, task3), historyManager.getHistory("alice"));
+        assertEquals(List.of(task2), historyManager.getHistory("bob"));
+        assertEquals(List.of(task2), historyManager.getHistory());
+        assertEquals(List.of(task2), historyManager.getHistory(null));
+        assertEquals(List.of(), historyManager.getHistory("carol"));
+    }
+
+    @Test
+    void clientHistoryIsCapped() {
+        Task task4 = new Task(4L, "Test task4", "Test task4 description", NEW);
+        historyManager.add("alice", task1);
+        historyManager.add("alice", task2);
+        historyManager.add("alice", task3);
+        historyManager.add("alice", task4);
+
+        assertEquals(List.of(task2, task3, task4), historyManager.getHistory("alice"));
+    }
+
+    @Test
+    void idleClientEvictedWhenBudgetExceeded() {
+        assertEquals(2, historyManager.getMaxPartitions());
+        historyManager.add("alice", task1);
+        historyManager.add("bob", task2);
+        // Обращение к истории alice делает самым давним клиентом bob
+        historyManager.getHistory("alice");
+        historyManager.add("carol", task3);
+
+        assertEquals(2, historyManager.getPartitionCount());
+        assertEquals(List.of(task1), historyManager.getHistory("alice"));
+        assertEquals(List.of(), historyManager.getHistory("bob"));
+        assertEquals(List.of(task3), historyManager.getHistory("carol"));
+    }
+
+    @Test
+    void removeFromAllClients() {
+        historyManager.add("alice", task1);
+        historyManager.add("bob", task1);
+        historyManager.add("bob", task2);
+
+        historyManager.remove(1L);
+        assertEquals(List.of(), historyManager.getHistory("alice"));
+        assertEquals(List.of(task2), historyManager.getHistory("bob"));
+    }
+
+    @Test
+    void budgetSmallerThanOnePartition() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PartitionedHistoryManager(CAPACITY, PARTITION_FOOTPRINT - 1));
+    }
+}
@@ -3,6 +3,7 @@ package kanban.manager;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -114,11 +115,13 @@ public abstract class TaskManagerTest<T extends TaskManager> {
 
         subTask.setStatus(IN_PROGRESS);
         taskManager.updateSubTask(subTask);
-        assertEquals(savedEpic.getStatus(), IN_PROGRESS, "Статус эпика подзадачи не равен \"IN_PROGRESS\"");
+        assertEquals(taskManager.getEpicById(epicId).getStatus(), IN_PROGRESS,
+                "Статус эпика подзадачи не равен \"IN_PROGRESS\"");
 
         subTask.setStatus(DONE);
         taskManager.updateSubTask(subTask);
-        assertEquals(savedEpic.getStatus(), DONE, "Статус эпика подзадачи не равен \"DONE\"");
+        assertEquals(taskManager.getEpicById(epicId).getStatus(), DONE,
+                "Статус эпика подзадачи не равен \"DONE\"");
     }
 
     @Test
@@ -182,6 +185,46 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Подзадача эпика не удалена");
     }
 
+    @Test
+    void deletedEpicReleasesSubTasks() {
+        Epic epic = new Epic("Epic", "---");
+        Long epicId = taskManager.createEpic(epic);
+        taskManager.createSubTask(new SubTask("Subtask", "1_1", NEW, epicId));
+
+        taskManager.deleteEpicById(epicId);
+        assertEquals(0, epic.getSubTaskList().size(), "Удаленный эпик удерживает подзадачи");
+    }
+
+    @Test
+    void deletedTasksEvictedFromHistory() {
+        createTestTasks();
+        List<Task> tasks = taskManager.getTaskList();
+        List<Epic> epics = taskManager.getEpicList();
+        List<SubTask> subTasks = taskManager.getSubTaskList();
+        tasks.forEach(task -> taskManager.getTaskById(task.getId()));
+        epics.forEach(epic -> taskManager.getEpicById(epic.getId()));
+        subTasks.forEach(subTask -> taskManager.getSubTaskById(subTask.getId()));
+
+        Epic deletedEpic = epics.getFirst();
+        taskManager.deleteTaskById(tasks.getFirst().getId());
+        taskManager.deleteEpicById(deletedEpic.getId());
+
+        List<Task> expectedHistory = new ArrayList<>(tasks.subList(1, tasks.size()));
+        expectedHistory.addAll(epics.subList(1, epics.size()));
+        subTasks.stream()
+                .filter(subTask -> !subTask.getEpicId().equals(deletedEpic.getId()))
+                .forEach(expectedHistory::add);
+        assertEquals(expectedHistory, taskManager.getHistory(), "Удаленные задачи остались в истории");
+
+        taskManager.deleteAllSubTasks();
+        assertEquals(taskManager.getTaskList().size() + taskManager.getEpicList().size(),
+                taskManager.getHistory().size(), "Удаленные подзадачи остались в истории");
+
+        taskManager.deleteAllTasks();
+        taskManager.deleteAllEpics();
+        assertEquals(List.of(), taskManager.getHistory(), "Удаленные задачи остались в истории");
+    }
+
     @Test
     void deleteSubTaskById() {
         Epic epic = new Epic("Test createEpic", "Test createTask description");
@@ -199,6 +242,33 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Подзадача не удалена из эпика");
     }
 
+    @Test
+    void deleteByIdOfAnotherTypeIsRejected() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 10, 0);
+        Long taskId = taskManager.createTask(new Task("Task", "---", NEW, start, Duration.ofMinutes(30)));
+        Long epicId = taskManager.createEpic(new Epic("Epic", "---"));
+        Long subTaskId = taskManager.createSubTask(new SubTask("Subtask", "---", NEW, epicId,
+                start.plusHours(1), Duration.ofMinutes(30)));
+        taskManager.getTaskById(taskId);
+        taskManager.getSubTaskById(subTaskId);
+
+        assertThrows(NoSuchElementException.class, () -> taskManager.deleteTaskById(subTaskId));
+        assertThrows(NoSuchElementException.class, () -> taskManager.deleteTaskById(epicId));
+        assertThrows(NoSuchElementException.class, () -> taskManager.deleteSubTaskById(taskId));
+        assertThrows(NoSuchElementException.class, () -> taskManager.deleteEpicById(subTaskId));
+
+        // Ни задача, ни подзадача не пострадали: они остались в расписании и в истории
+        assertEquals(List.of(taskId, subTaskId), taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(List.of(taskId, subTaskId), taskManager.getHistory().stream().map(Task::getId).toList());
+        assertEquals(1, taskManager.getEpicById(epicId).getSubTaskList().size());
+        assertThrows(CreateTaskException.class, () -> taskManager.createTask(
+                new Task("Overlapping task", "---", NEW, start.plusHours(1), Duration.ofMinutes(10))));
+
+        taskManager.deleteSubTaskById(subTaskId);
+        taskManager.deleteTaskById(taskId);
+        assertEquals(List.of(), taskManager.getPrioritizedTasks());
+    }
+
     @Test
     void updateTask() {
         Task task = new Task("Test createTask", "Test createTask description", NEW);
@@ -412,4 +482,339 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.deleteAllTasks();
         assertEquals(1, taskManager.getPrioritizedTasks().size());
     }
+
+    @Test
+    void taskContainingAnotherTaskIntersects() {
+        taskManager.createTask(new Task("Test task1", "Test task1 description", NEW,
+                LocalDateTime.of(2020, Month.APRIL, 1, 11, 0), Duration.ofMinutes(10)));
+
+        Task task2 = new Task("Test task2", "Test task2 description", NEW,
+                LocalDateTime.of(2020, Month.APRIL, 1, 10, 0), Duration.ofMinutes(120));
+        assertThrows(CreateTaskException.class, () -> taskManager.createTask(task2));
+
+        Task task3 = new Task("Test task3", "Test task3 description", NEW,
+                LocalDateTime.of(2020, Month.APRIL, 1, 11, 10), Duration.ofMinutes(10));
+        final Long task3Id = taskManager.createTask(task3);
+
+        // После удаления задачи ее время снова свободно
+        taskManager.deleteTaskById(task3Id);
+        Task task4 = new Task("Test task4", "Test task4 description", NEW,
+                LocalDateTime.of(2020, Month.APRIL, 1, 11, 10), Duration.ofMinutes(5));
+        taskManager.createTask(task4);
+        assertEquals(2, taskManager.getTaskList().size());
+    }
+
+    @Test
+    void getPrioritizedTasksInRange() {
+        LocalDateTime day = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 0, 0);
+        Task task1 = new Task("Test task1", "Test task1 description", NEW,
+                day.minusHours(1), Duration.ofMinutes(90));
+        Task task2 = new Task("Test task2", "Test task2 description", NEW,
+                day.plusHours(10), Duration.ofMinutes(30));
+        Task task3 = new Task("Test task3", "Test task3 description", NEW,
+                day.plusDays(1), Duration.ofMinutes(30));
+        Task task4 = new Task("Test task4", "Test task4 description", NEW,
+                day.minusDays(1), Duration.ofMinutes(30));
+        taskManager.createTask(task1);
+        taskManager.createTask(task2);
+        taskManager.createTask(task3);
+        taskManager.createTask(task4);
+
+        assertEquals(List.of(task1, task2), taskManager.getPrioritizedTasks(day, day.plusDays(1)));
+        assertEquals(List.of(task2, task3), taskManager.getPrioritizedTasks(day.plusHours(1), null));
+        assertEquals(List.of(task4), taskManager.getPrioritizedTasks(null, day.minusHours(1)));
+        assertEquals(taskManager.getPrioritizedTasks(), taskManager.getPrioritizedTasks(null, null));
+        assertEquals(List.of(), taskManager.getPrioritizedTasks(day.plusDays(1), day));
+    }
+
+    @Test
+    void prioritizedTasksWithSameStartTime() {
+        LocalDateTime startTime = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 10, 0);
+        Task task1 = new Task("Test task1", "Test task1 description", NEW, startTime, Duration.ZERO);
+        Task task2 = new Task("Test task2", "Test task2 description", NEW, startTime, Duration.ZERO);
+        Task task3 = new Task("Test task3", "Test task3 description", NEW, startTime, Duration.ofMinutes(10));
+        taskManager.createTask(task1);
+        final Long task2Id = taskManager.createTask(task2);
+        taskManager.createTask(task3);
+
+        assertEquals(List.of(task1, task2, task3), taskManager.getPrioritizedTasks());
+
+        // После изменения времени начала задача переезжает на новое место в расписании
+        Task task2Updated = new Task(task2Id, task2.getName(), task2.getDescription(), NEW,
+                startTime.minusHours(1), Duration.ofMinutes(30));
+        taskManager.updateTask(task2Updated);
+        assertEquals(List.of(task2, task1, task3), taskManager.getPrioritizedTasks());
+
+        Task task2WithoutTime = new Task(task2Id, task2.getName(), task2.getDescription(), NEW);
+        taskManager.updateTask(task2WithoutTime);
+        assertEquals(List.of(task1, task3), taskManager.getPrioritizedTasks());
+
+        taskManager.updateTask(task2Updated);
+        assertEquals(List.of(task2, task1, task3), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void prioritizedTasksOfDifferentTypes() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 9, 0);
+        final Long epicId = taskManager.createEpic(new Epic("Test epic", "Test epic description"));
+        Task task1 = new Task("Test task1", "Test task1 description", NEW, start, Duration.ofMinutes(30));
+        SubTask subTask1 = new SubTask("Test subTask1", "Test subTask1 description", NEW, epicId,
+                start.plusMinutes(30), Duration.ofMinutes(30));
+        Task task2 = new Task("Test task2", "Test task2 description", NEW,
+                start.plusMinutes(60), Duration.ofMinutes(30));
+        SubTask subTask2 = new SubTask("Test subTask2", "Test subTask2 description", NEW, epicId,
+                start.plusMinutes(90), Duration.ofMinutes(30));
+        taskManager.createTask(task1);
+        taskManager.createSubTask(subTask1);
+        taskManager.createTask(task2);
+        taskManager.createSubTask(subTask2);
+
+        assertEquals(List.of(task1, subTask1, task2, subTask2), taskManager.getPrioritizedTasks());
+        assertEquals(List.of(subTask1, task2),
+                taskManager.getPrioritizedTasks(start.plusMinutes(45), start.plusMinutes(90)));
+        assertThrows(CreateTaskException.class, () -> taskManager.createTask(new Task("Test task3",
+                "Test task3 description", NEW, start.plusMinutes(100), Duration.ofMinutes(10))));
+
+        // Удаление всех задач одного типа не затрагивает расписание другого
+        taskManager.deleteAllTasks();
+        assertEquals(List.of(subTask1, subTask2), taskManager.getPrioritizedTasks());
+        assertEquals(start.plusMinutes(60),
+                taskManager.findFreeSlot(Duration.ofMinutes(30), start.plusMinutes(30), null));
+        taskManager.createTask(task2);
+
+        taskManager.deleteAllSubTasks();
+        assertEquals(List.of(task2), taskManager.getPrioritizedTasks());
+        taskManager.createSubTask(subTask1);
+        assertEquals(List.of(subTask1, task2), taskManager.getPrioritizedTasks());
+
+        taskManager.deleteAllEpics();
+        assertEquals(List.of(task2), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void createAll() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 9, 0);
+        Epic epic = new Epic(100L, "Test epic", "Test epic description");
+        Task task = new Task("Test task", "Test task description", NEW, start, Duration.ofMinutes(30));
+        SubTask subTask1 = new SubTask("Test subTask1", "Test subTask1 description", DONE, 100L,
+                start.plusMinutes(30), Duration.ofMinutes(30));
+        SubTask subTask2 = new SubTask("Test subTask2", "Test subTask2 description", IN_PROGRESS, 100L,
+                start.plusMinutes(60), Duration.ofMinutes(30));
+
+        List<Long> ids = taskManager.createAll(List.of(task, subTask1, epic, subTask2));
+
+        assertEquals(List.of(task.getId(), subTask1.getId(), 100L, subTask2.getId()), ids);
+        assertEquals(List.of(task), taskManager.getTaskList());
+        assertEquals(List.of(subTask1, subTask2), taskManager.getSubTaskListByEpicId(100L));
+        assertEquals(IN_PROGRESS, taskManager.getEpicById(100L).getStatus());
+        assertEquals(start.plusMinutes(30), taskManager.getEpicById(100L).getStartTime());
+        assertEquals(List.of(task, subTask1, subTask2), taskManager.getPrioritizedTasks());
+
+        // Пакет проверяется целиком: при пересечении внутри пакета не создается ни одна задача
+        Task task2 = new Task("Test task2", "Test task2 description", NEW,
+                start.plusMinutes(120), Duration.ofMinutes(30));
+        Task task3 = new Task("Test task3", "Test task3 description", NEW,
+                start.plusMinutes(140), Duration.ofMinutes(30));
+        assertThrows(CreateTaskException.class, () -> taskManager.createAll(List.of(task2, task3)));
+        assertEquals(1, taskManager.getTaskList().size());
+
+        // Пересечение с уже созданной задачей
+        Task task4 = new Task("Test task4", "Test task4 description", NEW,
+                start.plusMinutes(80), Duration.ofMinutes(20));
+        assertThrows(CreateTaskException.class, () -> taskManager.createAll(List.of(task2, task4)));
+        assertEquals(1, taskManager.getTaskList().size());
+
+        // Подзадача без эпика
+        SubTask subTask3 = new SubTask("Test subTask3", "Test subTask3 description", NEW, 200L);
+        assertThrows(CreateTaskException.class, () -> taskManager.createAll(List.of(task2, subTask3)));
+        assertEquals(1, taskManager.getTaskList().size());
+        assertEquals(2, taskManager.getSubTaskList().size());
+
+        // Один id дважды в пакете
+        Task task5 = new Task(300L, "Test task5", "Test task5 description", NEW);
+        Task task6 = new Task(300L, "Test task6", "Test task6 description", NEW);
+        assertThrows(CreateTaskException.class, () -> taskManager.createAll(List.of(task5, task6)));
+        assertEquals(1, taskManager.getTaskList().size());
+    }
+
+    @Test
+    void updateAll() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 9, 0);
+        final Long epicId = taskManager.createEpic(new Epic("Test epic", "Test epic description"));
+        final Long taskId = taskManager.createTask(new Task("Test task", "Test task description", NEW,
+                start, Duration.ofMinutes(30)));
+        final Long subTaskId = taskManager.createSubTask(new SubTask("Test subTask", "Test subTask description",
+                NEW, epicId, start.plusMinutes(30), Duration.ofMinutes(60)));
+
+        // Задачи пакета меняются местами в расписании
+        Task taskUpdated = new Task(taskId, "Updated", "Updated", DONE,
+                start.plusMinutes(60), Duration.ofMinutes(30));
+        SubTask subTaskUpdated = new SubTask(subTaskId, "Updated", "Updated", DONE, epicId,
+                start, Duration.ofMinutes(60));
+        Epic epicUpdated = new Epic(epicId, "Updated", "Updated");
+        taskManager.updateAll(List.of(taskUpdated, subTaskUpdated, epicUpdated));
+
+        assertEquals(taskUpdated, taskManager.getTaskById(taskId));
+        assertEquals(DONE, taskManager.getTaskById(taskId).getStatus());
+        assertEquals(start.plusMinutes(60), taskManager.getTaskById(taskId).getStartTime());
+        assertEquals("Updated", taskManager.getEpicById(epicId).getName());
+        assertEquals(DONE, taskManager.getEpicById(epicId).getStatus());
+        assertEquals(start.plusMinutes(60), taskManager.getEpicById(epicId).getEndTime());
+        assertEquals(List.of(subTaskUpdated, taskUpdated), taskManager.getPrioritizedTasks());
+
+        // При пересечении внутри пакета не обновляется ни одна задача
+        Task taskIntersecting = new Task(taskId, "Test task", "Test task description", NEW,
+                start.plusMinutes(30), Duration.ofMinutes(30));
+        assertThrows(UpdateTaskException.class,
+                () -> taskManager.updateAll(List.of(taskIntersecting, subTaskUpdated)));
+        assertEquals(start.plusMinutes(60), taskManager.getTaskById(taskId).getStartTime());
+        assertEquals(List.of(subTaskUpdated, taskUpdated), taskManager.getPrioritizedTasks());
+
+        assertThrows(NoSuchElementException.class, () -> taskManager.updateAll(List.of(
+                new Task(1000L, "Test task", "Test task description", NEW))));
+
+        // Одна подзадача дважды в пакете: пакет отклоняется целиком, подзадачу можно удалить
+        SubTask subTaskMoved = new SubTask(subTaskId, "Moved", "Moved", NEW, epicId,
+                start.plusMinutes(120), Duration.ofMinutes(60));
+        assertThrows(UpdateTaskException.class,
+                () -> taskManager.updateAll(List.of(subTaskMoved, subTaskUpdated)));
+        assertEquals(start, taskManager.getSubTaskById(subTaskId).getStartTime());
+        assertEquals(List.of(subTaskUpdated, taskUpdated), taskManager.getPrioritizedTasks());
+        taskManager.deleteSubTaskById(subTaskId);
+        assertEquals(List.of(taskUpdated), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void findFreeSlot() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 9, 0);
+        taskManager.createTask(new Task("Test task1", "Test task1 description", NEW,
+                start, Duration.ofMinutes(60)));
+        taskManager.createTask(new Task("Test task2", "Test task2 description", NEW,
+                start.plusMinutes(80), Duration.ofMinutes(30)));
+        taskManager.createTask(new Task("Test task3", "Test task3 description", NEW,
+                start.plusMinutes(120), Duration.ofMinutes(60)));
+
+        assertEquals(start.minusMinutes(30),
+                taskManager.findFreeSlot(Duration.ofMinutes(30), start.minusMinutes(30), null));
+        assertEquals(start.plusMinutes(60),
+                taskManager.findFreeSlot(Duration.ofMinutes(20), start.plusMinutes(30), null));
+        assertEquals(start.plusMinutes(110),
+                taskManager.findFreeSlot(Duration.ofMinutes(10), start.plusMinutes(75), null));
+        assertEquals(start.plusMinutes(180),
+                taskManager.findFreeSlot(Duration.ofMinutes(30), start, null));
+        assertThrows(NoSuchElementException.class,
+                () -> taskManager.findFreeSlot(Duration.ofMinutes(30), start, start.plusMinutes(200)));
+
+        // Найденное время действительно свободно
+        LocalDateTime freeSlot = taskManager.findFreeSlot(Duration.ofMinutes(20), start, null);
+        taskManager.createTask(new Task("Test task4", "Test task4 description", NEW,
+                freeSlot, Duration.ofMinutes(20)));
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+
+        // Задача нулевой длительности не занимает промежуток
+        taskManager.createTask(new Task("Test task5", "Test task5 description", NEW,
+                start.plusMinutes(195), Duration.ZERO));
+        assertEquals(start.plusMinutes(180),
+                taskManager.findFreeSlot(Duration.ofMinutes(30), start.plusMinutes(180), null));
+
+        // Отрицательная длительность отклоняется, как и в HTTP-обработчике
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.findFreeSlot(Duration.ofMinutes(-30), start, null));
+    }
+
+    @Test
+    void epicTimeFollowsSubTaskChanges() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 10, 0);
+        Long epicId = taskManager.createEpic(new Epic("Epic", "---"));
+        Long epicId2 = taskManager.createEpic(new Epic("Epic2", "---"));
+
+        SubTask subTask1 = new SubTask("Subtask1", "1_1", NEW, epicId, start, Duration.ofMinutes(30));
+        SubTask subTask2 = new SubTask("Subtask2", "1_2", NEW, epicId, start.plusHours(2), Duration.ofMinutes(15));
+        taskManager.createSubTask(subTask1);
+        Long subTask2Id = taskManager.createSubTask(subTask2);
+
+        Epic epic = taskManager.getEpicById(epicId);
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusMinutes(135), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(45), epic.getDuration());
+
+        // Сдвигаем последнюю подзадачу
+        taskManager.updateSubTask(new SubTask(subTask2Id, "Subtask2", "1_2", NEW, epicId,
+                start.plusHours(1), Duration.ofMinutes(60)));
+        epic = taskManager.getEpicById(epicId);
+        assertEquals(start.plusHours(2), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(90), epic.getDuration());
+
+        // Переносим ее в другой эпик
+        taskManager.updateSubTask(new SubTask(subTask2Id, "Subtask2", "1_2", NEW, epicId2,
+                start.plusHours(1), Duration.ofMinutes(60)));
+        epic = taskManager.getEpicById(epicId);
+        assertEquals(start.plusMinutes(30), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(30), epic.getDuration());
+        assertEquals(start.plusHours(1), taskManager.getEpicById(epicId2).getStartTime());
+        assertThrows(UpdateTaskException.class, () -> taskManager.updateSubTask(
+                new SubTask(subTask2Id, "Subtask2", "1_2", NEW, 100L)));
+
+        taskManager.deleteSubTaskById(subTask1.getId());
+        epic = taskManager.getEpicById(epicId);
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+        assertEquals(Duration.ZERO, epic.getDuration());
+
+        taskManager.deleteAllSubTasks();
+        assertNull(taskManager.getEpicById(epicId2).getEndTime());
+    }
+
+    @Test
+    void epicStatusFollowsSubTaskStatuses() {
+        Long epicId = taskManager.createEpic(new Epic("Epic", "---"));
+        Long subTask1Id = taskManager.createSubTask(new SubTask("Subtask1", "1_1", NEW, epicId));
+        Long subTask2Id = taskManager.createSubTask(new SubTask("Subtask2", "1_2", DONE, epicId));
+        Epic epic = taskManager.getEpicById(epicId);
+
+        assertEquals(IN_PROGRESS, epic.getStatus());
+        assertEquals(1, epic.getSubTaskCount(NEW));
+        assertEquals(1, epic.getSubTaskCount(DONE));
+
+        taskManager.deleteSubTaskById(subTask1Id);
+        epic = taskManager.getEpicById(epicId);
+        assertEquals(DONE, epic.getStatus());
+
+        taskManager.updateSubTask(new SubTask(subTask2Id, "Subtask2", "1_2", NEW, epicId));
+        epic = taskManager.getEpicById(epicId);
+        assertEquals(NEW, epic.getStatus());
+        assertEquals(0, epic.getSubTaskCount(DONE));
+
+        taskManager.createSubTask(new SubTask("Subtask3", "1_3", IN_PROGRESS, epicId));
+        epic = taskManager.getEpicById(epicId);
+        assertEquals(IN_PROGRESS, epic.getStatus());
+
+        taskManager.deleteAllSubTasks();
+        epic = taskManager.getEpicById(epicId);
+        assertEquals(NEW, epic.getStatus());
+        assertEquals(0, epic.getSubTaskCount(IN_PROGRESS));
+    }
+
+    @Test
+    void updateSubTaskChangedInPlace() {
+        LocalDateTime start = LocalDateTime.of(2024, Month.SEPTEMBER, 1, 10, 0);
+        Long epicId = taskManager.createEpic(new Epic("Epic", "---"));
+        SubTask subTask1 = new SubTask("Subtask1", "1_1", NEW, epicId, start, Duration.ofMinutes(30));
+        SubTask subTask2 = new SubTask("Subtask2", "1_2", NEW, epicId, start.plusHours(1), Duration.ofMinutes(30));
+        taskManager.createSubTask(subTask1);
+        taskManager.createSubTask(subTask2);
+
+        // Меняем сохраненную подзадачу напрямую и передаем тот же объект в update
+        subTask2.setStartTime(start.minusHours(1));
+        subTask2.setStatus(DONE);
+        taskManager.updateSubTask(subTask2);
+
+        Epic epic = taskManager.getEpicById(epicId);
+        assertEquals(List.of(subTask2, subTask1), taskManager.getPrioritizedTasks());
+        assertEquals(start.minusHours(1), epic.getStartTime());
+        assertEquals(start.plusMinutes(30), epic.getEndTime());
+        assertEquals(IN_PROGRESS, epic.getStatus());
+        assertEquals(0, epic.getSubTaskCount(IN_PROGRESS));
+        assertEquals(1, epic.getSubTaskCount(DONE));
+    }
 }
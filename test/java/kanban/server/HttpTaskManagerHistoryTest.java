@@ -9,7 +9,7 @@ import java.util.List;
 
 import com.google.gson.Gson;
 import kanban.HttpTaskServer;
-import kanban.manager.InMemoryTaskManager;
+import kanban.manager.Managers;
 import kanban.manager.TaskManager;
 import kanban.model.Epic;
 import kanban.model.SubTask;
@@ -22,10 +22,11 @@ import org.junit.jupiter.api.Test;
 import static kanban.model.TaskStatus.DONE;
 import static kanban.model.TaskStatus.NEW;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpTaskManagerHistoryTest {
 
-    TaskManager manager = new InMemoryTaskManager();
+    TaskManager manager = Managers.getDefault();
     HttpTaskServer taskServer = new HttpTaskServer(manager);
     Gson gson = HttpTaskServer.getGson();
 
@@ -76,4 +77,47 @@ public class HttpTaskManagerHistoryTest {
         assertEquals(manager.getHistory().size(), responseTasks.size());
         assertEquals(expectedTasks, responseTasks);
     }
+
+    @Test
+    public void getHistoryPagesTest() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history?limit=3"))
+                .GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Task> responseTasks = gson.fromJson(response.body(), new HttpTaskManagerTasksTest.TaskListTypeToken().getType());
+
+        // Самые свежие просмотры первыми
+        assertEquals(200, response.statusCode());
+        assertEquals(List.of(8L, 1L, 4L), responseTasks.stream().map(Task::getId).toList());
+        String cursor = response.headers().firstValue("X-Next-Cursor").orElseThrow();
+
+        request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history?limit=3&cursor=" + cursor))
+                .GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        responseTasks = gson.fromJson(response.body(), new HttpTaskManagerTasksTest.TaskListTypeToken().getType());
+        assertEquals(200, response.statusCode());
+        assertEquals(List.of(2L), responseTasks.stream().map(Task::getId).toList());
+        assertTrue(response.headers().firstValue("X-Next-Cursor").isEmpty());
+
+        request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history?limit=-1")).GET().build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void getClientHistoryTest() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest viewRequest = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/tasks/3"))
+                .header("X-Client-Id", "alice").GET().build();
+        assertEquals(200, client.send(viewRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history"))
+                .header("X-Client-Id", "alice").GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Task> responseTasks = gson.fromJson(response.body(), new HttpTaskManagerTasksTest.TaskListTypeToken().getType());
+
+        // Просмотры других клиентов и просмотры без заголовка в историю клиента не попадают
+        assertEquals(200, response.statusCode());
+        assertEquals(List.of(3L), responseTasks.stream().map(Task::getId).toList());
+        assertEquals(4, manager.getHistory().size());
+    }
 }
@@ -11,6 +11,8 @@ import java.time.Month;
 import java.util.List;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import kanban.HttpTaskServer;
 import kanban.manager.InMemoryTaskManager;
 import kanban.manager.TaskManager;
@@ -69,4 +71,54 @@ public class HttpTaskManagerPrioritizedTest {
         assertEquals(manager.getPrioritizedTasks().size(), responseTasks.size());
         assertEquals(expectedTasks, responseTasks);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getPrioritizedInRangeTest() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080/prioritized?from=2024-09-01T15:05:00&to=2024-09-01T15:25:00");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Task> responseTasks = gson.fromJson(response.body(), new HttpTaskManagerTasksTest.TaskListTypeToken().getType());
+        assertEquals(200, response.statusCode());
+        assertEquals(2, responseTasks.size());
+        assertEquals("Первая задача", responseTasks.get(0).getName());
+        assertEquals("Третья задача", responseTasks.get(1).getName());
+
+        url = URI.create("http://localhost:8080/prioritized?from=yesterday");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+
+        // Конец промежутка раньше начала
+        url = URI.create("http://localhost:8080/prioritized?from=2024-09-01T15:25:00&to=2024-09-01T15:05:00");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("[]", response.body());
+    }
+
+    @Test
+    public void getFreeSlotTest() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080/prioritized/free-slot?duration=30&from=2024-09-01T15:00:00");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonObject slot = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals("2024-09-01T15:45:00", slot.get("startTime").getAsString());
+        assertEquals("2024-09-01T16:15:00", slot.get("endTime").getAsString());
+
+        url = URI.create("http://localhost:8080/prioritized/free-slot?duration=30"
+                + "&from=2024-09-01T15:00:00&to=2024-09-01T16:00:00");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, response.statusCode());
+
+        url = URI.create("http://localhost:8080/prioritized/free-slot?from=2024-09-01T15:00:00");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+}